@@ -0,0 +1,224 @@
+package com.blazemeter.jmeter.debugger.elements;
+
+
+import com.blazemeter.jmeter.debugger.engine.DebuggerEngine;
+import com.blazemeter.jmeter.debugger.engine.PassThroughTrigger;
+import com.blazemeter.jmeter.debugger.engine.StepTrigger;
+import org.apache.jmeter.engine.StandardJMeterEngine;
+import org.apache.jmeter.engine.event.LoopIterationEvent;
+import org.apache.jmeter.engine.event.LoopIterationListener;
+import org.apache.jmeter.engine.util.NoThreadClone;
+import org.apache.jmeter.testbeans.TestBean;
+import org.apache.jmeter.testbeans.TestBeanHelper;
+import org.apache.jmeter.testelement.AbstractTestElement;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.TestIterationListener;
+import org.apache.jmeter.testelement.property.JMeterProperty;
+import org.apache.jmeter.testelement.property.PropertyIterator;
+import org.apache.jmeter.testelement.property.PropertyIteratorImpl;
+import org.apache.jmeter.threads.JMeterContextService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public abstract class AbstractDebugElement<T> extends AbstractTestElement implements Wrapper<T>, OriginalLink<T>, LoopIterationListener, TestIterationListener {
+    protected T wrapped;
+    private T original;
+    private transient boolean prepared = false;
+
+    @Override
+    public void setWrappedElement(T wrapped) {
+        this.wrapped = wrapped;
+    }
+
+    public T getWrappedElement() {
+        return wrapped;
+    }
+
+    protected StepTrigger getHook() {
+        StandardJMeterEngine engine = JMeterContextService.getContext().getEngine();
+        if (engine instanceof DebuggerEngine) {
+            return ((DebuggerEngine) engine).getStepper();
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * @return false if the step was skipped because debugger just runs through
+     */
+    protected boolean triggerStep(Wrapper wrapper) {
+        StepTrigger hook = getHook();
+        if (hook instanceof PassThroughTrigger && ((PassThroughTrigger) hook).isPassThrough()) {
+            return false;
+        }
+        hook.stepOn(wrapper);
+        return true;
+    }
+
+    @Override
+    public void addTestElement(TestElement el) {
+        if (wrapped instanceof TestElement) {
+            ((TestElement) wrapped).addTestElement(el);
+        }
+    }
+
+    /**
+     * Bean fields are prepared once per iteration or after edit,
+     * function properties are cached per iteration by JMeter anyway
+     */
+    protected void prepareBean() {
+        if (wrapped instanceof TestBean && !prepared) {
+            //noinspection deprecation
+            TestBeanHelper.prepare((TestElement) wrapped); // the deprecation reason is not sufficient
+            prepared = true;
+        }
+    }
+
+    @Override
+    public void setOriginal(T orig) {
+        original = orig;
+    }
+
+    @Override
+    public T getOriginal() {
+        return original;
+    }
+
+    @Override
+    public JMeterProperty getProperty(String key) {
+        if (wrapped instanceof TestElement && !isOwnProperty(key)) {
+            return ((TestElement) wrapped).getProperty(key);
+        }
+        return super.getProperty(key);
+    }
+
+    @Override
+    public void setProperty(JMeterProperty property) {
+        prepared = false;
+        if (wrapped instanceof TestElement && !isOwnProperty(property.getName())) {
+            ((TestElement) wrapped).setProperty(property);
+        } else {
+            super.setProperty(property);
+        }
+    }
+
+    @Override
+    public void removeProperty(String key) {
+        prepared = false;
+        if (wrapped instanceof TestElement && !isOwnProperty(key)) {
+            ((TestElement) wrapped).removeProperty(key);
+        } else {
+            super.removeProperty(key);
+        }
+    }
+
+    @Override
+    public PropertyIterator propertyIterator() {
+        return joinProperties(super.propertyIterator(), wrapped);
+    }
+
+    /**
+     * Own property map holds class identity only, so wrapped element takes part in comparison
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o == this || (o != null && o.getClass() == getClass() && super.equals(o) && Objects.equals(wrapped, ((AbstractDebugElement) o).wrapped));
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    @Override
+    public void setRunningVersion(boolean run) {
+        super.setRunningVersion(run);
+        if (wrapped instanceof TestElement) {
+            ((TestElement) wrapped).setRunningVersion(run);
+        }
+    }
+
+    @Override
+    public void recoverRunningVersion() {
+        super.recoverRunningVersion();
+        if (wrapped instanceof TestElement) {
+            ((TestElement) wrapped).recoverRunningVersion();
+        }
+    }
+
+    /**
+     * Per-thread copy for additional debugged threads, keeps link to the same original
+     */
+    @Override
+    public Object clone() {
+        AbstractDebugElement<T> clone;
+        try {
+            //noinspection unchecked
+            clone = getClass().newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("Failed to clone " + getClass(), e);
+        }
+
+        PropertyIterator iter = super.propertyIterator(); // wrapped properties come with wrapped clone
+        while (iter.hasNext()) {
+            clone.setProperty(iter.next().clone());
+        }
+        clone.setWrappedElement(cloneWrapped(wrapped));
+        clone.setRunningVersion(isRunningVersion());
+        clone.setOriginal(original);
+        return clone;
+    }
+
+    /**
+     * Wrapper keeps only its class identity, the rest of properties is a view of wrapped element
+     */
+    static boolean isOwnProperty(String name) {
+        return TestElement.GUI_CLASS.equals(name) || TestElement.TEST_CLASS.equals(name);
+    }
+
+    static PropertyIterator joinProperties(PropertyIterator own, Object wrapped) {
+        List<JMeterProperty> props = new ArrayList<>();
+        while (own.hasNext()) {
+            JMeterProperty prop = own.next();
+            if (!(wrapped instanceof TestElement) || isOwnProperty(prop.getName())) {
+                props.add(prop);
+            }
+        }
+
+        if (wrapped instanceof TestElement) {
+            PropertyIterator iter = ((TestElement) wrapped).propertyIterator();
+            while (iter.hasNext()) {
+                JMeterProperty prop = iter.next();
+                if (!isOwnProperty(prop.getName())) {
+                    props.add(prop);
+                }
+            }
+        }
+        return new PropertyIteratorImpl(props);
+    }
+
+    static <E> E cloneWrapped(E wrapped) {
+        if (wrapped instanceof TestElement && !(wrapped instanceof NoThreadClone)) {
+            //noinspection unchecked
+            return (E) ((TestElement) wrapped).clone();
+        }
+        return wrapped;
+    }
+
+    @Override
+    public void iterationStart(LoopIterationEvent iterEvent) {
+        prepared = false;
+        if (wrapped instanceof LoopIterationListener) {
+            ((LoopIterationListener) wrapped).iterationStart(iterEvent);
+        }
+    }
+
+    @Override
+    public void testIterationStart(LoopIterationEvent event) {
+        prepared = false;
+        if (wrapped instanceof TestIterationListener) {
+            ((TestIterationListener) wrapped).testIterationStart(event);
+        }
+    }
+}
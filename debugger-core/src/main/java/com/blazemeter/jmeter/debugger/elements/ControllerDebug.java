@@ -15,7 +15,7 @@ public class ControllerDebug extends AbstractDebugElement<Controller> implements
 
     @Override
     public Sampler next() {
-        getHook().stepOn(this);
+        triggerStep(this);
         return wrapped.next();
     }
 
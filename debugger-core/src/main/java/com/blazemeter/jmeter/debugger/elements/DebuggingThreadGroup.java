@@ -0,0 +1,267 @@
+package com.blazemeter.jmeter.debugger.elements;
+
+import com.blazemeter.jmeter.debugger.engine.DebuggerEngine;
+import com.blazemeter.jmeter.debugger.engine.DebuggingThread;
+import com.blazemeter.jmeter.debugger.engine.Instrumentation;
+import com.blazemeter.jmeter.debugger.engine.InstrumentingCloner;
+import com.blazemeter.jmeter.debugger.engine.VirtualThreads;
+import org.apache.jmeter.control.LoopController;
+import org.apache.jmeter.engine.StandardJMeterEngine;
+import org.apache.jmeter.engine.TreeCloner;
+import org.apache.jmeter.engine.event.LoopIterationEvent;
+import org.apache.jmeter.engine.event.LoopIterationListener;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterContextServiceAccessor;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.ListenerNotifier;
+import org.apache.jmeter.threads.ThreadGroup;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class DebuggingThreadGroup extends ThreadGroup implements OriginalLink<ThreadGroup> {
+    private static final Logger log = LoggerFactory.getLogger(DebuggingThreadGroup.class);
+
+    private final List<Thread> osThreads = new CopyOnWriteArrayList<>();
+    private final List<DebuggingThread> jmeterThreads = new CopyOnWriteArrayList<>();
+    private final long waitTime = JMeterUtils.getPropDefault("jmeterengine.threadstop.wait", 5 * 1000);
+    private boolean stopping = false;
+    private ThreadGroup original;
+    private Instrumentation instrumentation;
+    private volatile JMeterVariables restartVariables;
+
+
+    public DebuggingThreadGroup() {
+        super();
+        setDelay(0);
+        setNumThreads(1);
+        setRampUp(0);
+        LoopController ctl = new LoopController();
+        ctl.setContinueForever(true);
+        ctl.setLoops(-1);
+        setSamplerController(ctl);
+    }
+
+    @Override
+    public void start(int groupCount, ListenerNotifier notifier, ListedHashTree threadGroupTree, StandardJMeterEngine engine) {
+        stopping = false; // prepared tree is reused across runs
+        osThreads.clear();
+        jmeterThreads.clear();
+        int numThreads = getNumThreads();
+        List<Thread> started = new ArrayList<>(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            // first thread keeps debugger context and tree, others get own copies like in regular thread group
+            JMeterContext context = i == 0 ? JMeterContextService.getContext() : JMeterContextServiceAccessor.createContext();
+            ListedHashTree tree = i == 0 ? threadGroupTree : cloneTree(threadGroupTree);
+            DebuggingThread jmThread = makeThread(groupCount, notifier, tree, engine, i, context, JMeterContextService.getContext());
+            Runnable target = instrumentation == null ? jmThread : new InstrumentedRun(jmThread, tree, groupCount, notifier, engine, i, context);
+            Thread newThread = VirtualThreads.newThread(target, jmThread.getThreadName());
+            if (engine instanceof DebuggerEngine) {
+                DebuggerEngine dbgEngine = (DebuggerEngine) engine;
+                dbgEngine.addThread(jmThread, newThread);
+
+                jmeterThreads.add(jmThread);
+                osThreads.add(newThread);
+            }
+            started.add(newThread);
+        }
+
+        for (Thread thread : started) {
+            thread.start();
+        }
+    }
+
+    private ListedHashTree cloneTree(ListedHashTree tree) {
+        DebuggingThreadGroup tg = (DebuggingThreadGroup) tree.getArray()[0];
+        if (tg.instrumentation != null) {
+            InstrumentingCloner cloner = new InstrumentingCloner(tg.instrumentation);
+            tree.traverse(cloner);
+            return cloner.getClonedTree();
+        }
+
+        TreeCloner cloner = new TreeCloner(true);
+        tree.traverse(cloner);
+        return cloner.getClonedTree();
+    }
+
+    private DebuggingThread makeThread(int groupCount, ListenerNotifier notifier, ListedHashTree threadGroupTree, StandardJMeterEngine engine, int i, JMeterContext context, JMeterContext initialContext) {
+        // had to copy whole method because of this line
+        DebuggingThread jmeterThread = new DebuggingThread(threadGroupTree, this, notifier, context);
+
+        boolean onErrorStopTest = getOnErrorStopTest();
+        boolean onErrorStopTestNow = getOnErrorStopTestNow();
+        boolean onErrorStopThread = getOnErrorStopThread();
+        boolean onErrorStartNextLoop = getOnErrorStartNextLoop();
+        String groupName = getName();
+
+        jmeterThread.setThreadNum(i);
+        jmeterThread.setThreadGroup(this);
+        jmeterThread.setInitialContext(initialContext);
+        String threadName = groupName + " " + (groupCount) + "-" + (i + 1);
+        jmeterThread.setThreadName(threadName);
+        jmeterThread.setEngine(engine);
+        jmeterThread.setOnErrorStopTest(onErrorStopTest);
+        jmeterThread.setOnErrorStopTestNow(onErrorStopTestNow);
+        jmeterThread.setOnErrorStopThread(onErrorStopThread);
+        jmeterThread.setOnErrorStartNextLoop(onErrorStartNextLoop);
+        return jmeterThread;
+    }
+
+    @Override
+    public void waitThreadsStopped() {
+        super.waitThreadsStopped();
+        for (Thread osThread : osThreads) {
+            while (osThread.isAlive()) {
+                if (stopping) {
+                    log.debug("Interrupting thread: " + osThread);
+                    osThread.interrupt();
+                }
+
+                log.debug("Joining thread 1: " + osThread + " " + stopping + " " + osThread.isInterrupted());
+
+                try {
+                    osThread.join(waitTime);
+                } catch (InterruptedException e) {
+                    log.debug("Interrupted: " + e);
+                    break;
+                }
+            }
+            log.debug("Thread is done: " + osThread);
+        }
+    }
+
+    @Override
+    public void tellThreadsToStop() {
+        stopping = true;
+        super.tellThreadsToStop();
+        for (DebuggingThread jmeterThread : jmeterThreads) {
+            log.debug("Interrupting JMeter thread: " + jmeterThread);
+            jmeterThread.stop(); // unwrapped elements never reach debugger to be stopped there
+            jmeterThread.interrupt();
+        }
+
+        for (Thread osThread : osThreads) {
+            log.debug("Interrupting OS thread: " + osThread);
+            osThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean verifyThreadsStopped() {
+        boolean stopped = super.verifyThreadsStopped();
+        for (Thread osThread : osThreads) {
+            if (osThread.isAlive()) {
+                log.debug("Joining thread 2: " + osThread);
+                try {
+                    osThread.join(waitTime);
+                } catch (InterruptedException e) {
+                    log.debug("Interrupted: " + e);
+                }
+                if (osThread.isAlive()) {
+                    stopped = false;
+                    log.warn("Thread didn't exit: " + osThread);
+                }
+            }
+        }
+        return stopped;
+    }
+
+    @Override
+    public Object clone() {
+        DebuggingThreadGroup clone = (DebuggingThreadGroup) super.clone();
+        clone.setOriginal(original);
+        clone.setInstrumentation(instrumentation);
+        return clone;
+    }
+
+    public Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * @param instrumentation null if all elements are wrapped
+     */
+    public void setInstrumentation(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Ends thread run at iteration boundary when breakpoints changed, so it restarts with re-instrumented tree
+     */
+    private class Reinstrument implements LoopIterationListener {
+        @Override
+        public void iterationStart(LoopIterationEvent iterEvent) {
+            if (!stopping && instrumentation.isOutdated()) {
+                JMeterContext context = JMeterContextService.getContext();
+                log.debug("Breakpoints changed, re-instrumenting " + context.getThread().getThreadName());
+                restartVariables = context.getVariables();
+                context.getThread().stop();
+            }
+        }
+    }
+
+    /**
+     * Runs thread, then restarts it in the same OS thread while re-instrumenting is requested
+     */
+    private class InstrumentedRun implements Runnable {
+        private DebuggingThread thread;
+        private ListedHashTree tree;
+        private final int groupCount;
+        private final ListenerNotifier notifier;
+        private final StandardJMeterEngine engine;
+        private final int threadNum;
+        private final JMeterContext context;
+
+        private InstrumentedRun(DebuggingThread thread, ListedHashTree tree, int groupCount, ListenerNotifier notifier, StandardJMeterEngine engine, int threadNum, JMeterContext context) {
+            this.thread = thread;
+            this.tree = tree;
+            this.groupCount = groupCount;
+            this.notifier = notifier;
+            this.engine = engine;
+            this.threadNum = threadNum;
+            this.context = context;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                DebuggingThreadGroup tg = (DebuggingThreadGroup) tree.getArray()[0];
+                LoopIterationListener reinstrument = tg.new Reinstrument();
+                tg.addIterationListener(reinstrument);
+                try {
+                    thread.run();
+                } finally {
+                    tg.removeIterationListener(reinstrument);
+                }
+
+                JMeterVariables vars = tg.restartVariables;
+                tg.restartVariables = null;
+                if (stopping || vars == null) {
+                    break;
+                }
+
+                JMeterContext initial = JMeterContextServiceAccessor.createContext();
+                initial.setVariables(vars);
+                tree = cloneTree(tree);
+                thread = makeThread(groupCount, notifier, tree, engine, threadNum, context, initial);
+                jmeterThreads.add(thread);
+            }
+        }
+    }
+
+    @Override
+    public ThreadGroup getOriginal() {
+        return original;
+    }
+
+    @Override
+    public void setOriginal(ThreadGroup orig) {
+        original = orig;
+    }
+}
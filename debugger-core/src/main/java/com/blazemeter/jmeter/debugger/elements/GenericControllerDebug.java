@@ -8,8 +8,12 @@ import org.apache.jmeter.samplers.Sampler;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.TestIterationListener;
 import org.apache.jmeter.testelement.TestStateListener;
+import org.apache.jmeter.testelement.property.JMeterProperty;
+import org.apache.jmeter.testelement.property.PropertyIterator;
 import org.apache.jmeter.threads.TestCompilerHelper;
 
+import java.util.Objects;
+
 public class GenericControllerDebug extends GenericController implements FullController, Wrapper<GenericController>, OriginalLink<GenericController> {
     private final AbstractDebugElement<GenericController> helper = new AbstractDebugElement<GenericController>() {
     };
@@ -18,7 +22,7 @@ public class GenericControllerDebug extends GenericController implements FullCon
 
     @Override
     public Sampler next() {
-        helper.getHook().stepOn(this);
+        helper.triggerStep(this);
         return wrapped.next();
     }
 
@@ -48,15 +52,14 @@ public class GenericControllerDebug extends GenericController implements FullCon
         wrapped.triggerEndOfLoop();
     }
 
+    /**
+     * Test compiler reaches here through this controller's own addTestElementOnce, which is final in JMeter
+     * and has already dropped repeated children, so the child is recorded in wrapped's dedup map too.
+     */
     @Override
     public void addTestElement(TestElement child) {
-        StackTraceElement[] stack = Thread.currentThread().getStackTrace();
-        if (stack[2].getMethodName().equals("addTestElementOnce")) { // final method with no reason, again
-            TestCompilerHelper wrapped = this.wrapped;
-            wrapped.addTestElementOnce(child);
-        } else {
-            wrapped.addTestElement(child);
-        }
+        TestCompilerHelper wrapped = this.wrapped;
+        wrapped.addTestElementOnce(child);
     }
 
     @Override
@@ -101,6 +104,85 @@ public class GenericControllerDebug extends GenericController implements FullCon
         }
     }
 
+    @Override
+    public JMeterProperty getProperty(String key) {
+        if (wrapped != null && !AbstractDebugElement.isOwnProperty(key)) {
+            return wrapped.getProperty(key);
+        }
+        return super.getProperty(key);
+    }
+
+    @Override
+    public void setProperty(JMeterProperty property) {
+        if (wrapped != null && !AbstractDebugElement.isOwnProperty(property.getName())) {
+            wrapped.setProperty(property);
+        } else {
+            super.setProperty(property);
+        }
+    }
+
+    @Override
+    public void removeProperty(String key) {
+        if (wrapped != null && !AbstractDebugElement.isOwnProperty(key)) {
+            wrapped.removeProperty(key);
+        } else {
+            super.removeProperty(key);
+        }
+    }
+
+    @Override
+    public PropertyIterator propertyIterator() {
+        return AbstractDebugElement.joinProperties(super.propertyIterator(), wrapped);
+    }
+
+    /**
+     * Own property map holds class identity only, so wrapped element takes part in comparison
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o == this || (o != null && o.getClass() == getClass() && super.equals(o) && Objects.equals(wrapped, ((GenericControllerDebug) o).wrapped));
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    @Override
+    public void setRunningVersion(boolean run) {
+        super.setRunningVersion(run);
+        if (wrapped != null) {
+            wrapped.setRunningVersion(run);
+        }
+    }
+
+    @Override
+    public void recoverRunningVersion() {
+        super.recoverRunningVersion();
+        if (wrapped != null) {
+            wrapped.recoverRunningVersion();
+        }
+    }
+
+    @Override
+    public Object clone() {
+        GenericControllerDebug clone;
+        try {
+            clone = getClass().newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("Failed to clone " + getClass(), e);
+        }
+
+        PropertyIterator iter = super.propertyIterator(); // wrapped properties come with wrapped clone
+        while (iter.hasNext()) {
+            clone.setProperty(iter.next().clone());
+        }
+        clone.setWrappedElement(AbstractDebugElement.cloneWrapped(wrapped));
+        clone.setRunningVersion(isRunningVersion());
+        clone.setOriginal(original);
+        return clone;
+    }
+
     @Override
     public GenericController getWrappedElement() {
         return wrapped;
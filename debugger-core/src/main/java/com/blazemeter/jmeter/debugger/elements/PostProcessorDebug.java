@@ -8,7 +8,7 @@ public class PostProcessorDebug extends AbstractDebugElement<PostProcessor> impl
     @Override
     public void process() {
         prepareBean();
-        getHook().stepOn(this);
+        triggerStep(this);
         wrapped.process();
     }
 }
@@ -7,7 +7,7 @@ public class PreProcessorDebug extends AbstractDebugElement<PreProcessor> implem
     @Override
     public void process() {
         prepareBean();
-        getHook().stepOn(this);
+        triggerStep(this);
         wrapped.process();
     }
 }
@@ -9,9 +9,9 @@ public class SampleListenerDebug extends AbstractDebugElement<SampleListener> im
     @Override
     public void sampleOccurred(SampleEvent e) {
         prepareBean();
-        getHook().stepOn(this);
+        triggerStep(this);
         wrapped.sampleOccurred(e);
-        getHook().stepOn(this); // special case for reporters to see the result
+        triggerStep(this); // special case for reporters to see the result
     }
 
     @Override
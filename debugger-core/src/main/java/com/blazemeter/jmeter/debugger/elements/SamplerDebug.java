@@ -1,10 +1,10 @@
 package com.blazemeter.jmeter.debugger.elements;
 
+import com.blazemeter.jmeter.debugger.engine.SampleReplayer;
+import com.blazemeter.jmeter.debugger.engine.StepTrigger;
 import org.apache.jmeter.samplers.Entry;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.samplers.Sampler;
-import org.apache.jmeter.testelement.TestElement;
-import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jmeter.threads.JMeterContext;
 
 
@@ -13,7 +13,11 @@ public class SamplerDebug extends AbstractDebugElement<Sampler> implements Sampl
     @Override
     public SampleResult sample(Entry e) {
         prepareBean();
-        getHook().stepOn(this);
+        triggerStep(this);
+        StepTrigger hook = getHook();
+        if (hook instanceof SampleReplayer) {
+            return ((SampleReplayer) hook).sample(wrapped, e);
+        }
         return wrapped.sample(e);
     }
 
@@ -26,12 +30,4 @@ public class SamplerDebug extends AbstractDebugElement<Sampler> implements Sampl
     public void setThreadName(String inthreadName) {
         wrapped.setThreadName(inthreadName);
     }
-
-    @Override
-    public void setProperty(JMeterProperty property) {
-        super.setProperty(property);
-        if (wrapped != null && !TestElement.GUI_CLASS.equals(property.getName())) {
-            wrapped.setProperty(property);
-        }
-    }
 }
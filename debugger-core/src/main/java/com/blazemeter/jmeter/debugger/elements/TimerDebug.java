@@ -14,7 +14,9 @@ public class TimerDebug extends AbstractDebugElement<Timer> implements Timer {
     @Override
     public long delay() {
         prepareBean();
-        getHook().stepOn(this);
+        if (!triggerStep(this)) {
+            isDelaying = true;
+        }
         long delay = wrapped.delay();
         if (isDelaying) {
             return delay;
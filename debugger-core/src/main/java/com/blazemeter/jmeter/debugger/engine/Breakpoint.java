@@ -0,0 +1,164 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import org.apache.jmeter.engine.util.CompoundVariable;
+import org.apache.jmeter.functions.InvalidVariableException;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.JMeterContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Breakpoint with optional condition, log message and hit count.
+ * Expressions are parsed only when their text changes. Hits are counted by each debugged thread separately,
+ * so "pause on Nth hit" means Nth hit within the thread, whatever other threads do.
+ */
+public class Breakpoint {
+    private static final Logger log = LoggerFactory.getLogger(Breakpoint.class);
+
+    public static final String ENABLED = Debugger.class.getCanonicalName();
+    public static final String CONDITION = ENABLED + ".condition";
+    public static final String LOG_MESSAGE = ENABLED + ".log";
+    public static final String HIT_COUNT = ENABLED + ".hitCount";
+    public static final String HIT_EVERY = ENABLED + ".hitEvery";
+
+    private final Expression condition = new Expression();
+    private final Expression logMessage = new Expression();
+    private volatile int hitCount;
+    private volatile boolean hitEvery;
+
+    public Breakpoint() {
+    }
+
+    public Breakpoint(String condition) {
+        setCondition(condition);
+    }
+
+    public void configure(TestElement original) {
+        setCondition(original.getPropertyAsString(CONDITION));
+        setLogMessage(original.getPropertyAsString(LOG_MESSAGE));
+        setHitCount(original.getPropertyAsInt(HIT_COUNT, 0), original.getPropertyAsBoolean(HIT_EVERY, false));
+    }
+
+    public String getCondition() {
+        return condition.text;
+    }
+
+    public void setCondition(String condition) {
+        this.condition.setText(condition);
+    }
+
+    public boolean isConditional() {
+        return !condition.text.isEmpty();
+    }
+
+    public String getLogMessage() {
+        return logMessage.text;
+    }
+
+    public void setLogMessage(String logMessage) {
+        this.logMessage.setText(logMessage);
+    }
+
+    /**
+     * Logpoint only writes message and never pauses
+     */
+    public boolean isLogpoint() {
+        return !logMessage.text.isEmpty();
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    public boolean isHitEvery() {
+        return hitEvery;
+    }
+
+    /**
+     * @param count pause on count-th hit, 0 to pause on every hit
+     * @param every pause on every count-th hit instead of single one
+     */
+    public void setHitCount(int count, boolean every) {
+        hitCount = Math.max(0, count);
+        hitEvery = every;
+    }
+
+    /**
+     * Logpoints and hit-counted breakpoints are evaluated on element itself only
+     */
+    public boolean isCounting() {
+        return isLogpoint() || hitCount > 0;
+    }
+
+    /**
+     * Must be called from the debugged thread, so functions see its variables
+     */
+    public boolean isHit(DebuggedThread thread) {
+        if (isConditional() && !isConditionTrue(thread.getContext())) {
+            return false;
+        }
+
+        long hit = thread.countHit(this);
+        int count = hitCount;
+        if (count > 0) {
+            return hitEvery ? hit % count == 0 : hit == count;
+        }
+        return true;
+    }
+
+    private boolean isConditionTrue(JMeterContext context) {
+        CompoundVariable expr = condition.compiled;
+        if (expr == null) {
+            return true; // broken condition stops, to let user notice it
+        }
+
+        try {
+            String res = expr.execute(context.getPreviousResult(), context.getCurrentSampler());
+            return Boolean.parseBoolean(res.trim());
+        } catch (Throwable e) {
+            log.warn("Failed to evaluate breakpoint condition: " + condition.text, e);
+            return true;
+        }
+    }
+
+    public String formatMessage(JMeterContext context) {
+        CompoundVariable expr = logMessage.compiled;
+        if (expr == null) {
+            return logMessage.text;
+        }
+
+        try {
+            return expr.execute(context.getPreviousResult(), context.getCurrentSampler());
+        } catch (Throwable e) {
+            log.debug("Failed to evaluate log message: " + logMessage.text, e);
+            return logMessage.text + " [" + e + "]";
+        }
+    }
+
+    private static class Expression {
+        private volatile String text = "";
+        private volatile CompoundVariable compiled;
+
+        private synchronized void setText(String text) {
+            if (text == null) {
+                text = "";
+            }
+
+            if (text.equals(this.text)) {
+                return;
+            }
+
+            this.text = text;
+            compiled = null;
+            if (!text.isEmpty()) {
+                CompoundVariable expr = new CompoundVariable();
+                try {
+                    expr.setParameters(text);
+                    compiled = expr;
+                } catch (InvalidVariableException e) {
+                    log.warn("Invalid breakpoint expression: " + text, e);
+                }
+            }
+        }
+    }
+}
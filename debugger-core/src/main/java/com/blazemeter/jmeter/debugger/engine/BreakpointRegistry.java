@@ -0,0 +1,90 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.HashTreeTraverser;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Identity map of original elements that hold a breakpoint.
+ * Reads are lock-free, the map is replaced on every change.
+ */
+public class BreakpointRegistry {
+    private volatile Map<TestElement, Breakpoint> armed = Collections.emptyMap();
+    private volatile long version = 0;
+
+    public boolean isEmpty() {
+        return armed.isEmpty();
+    }
+
+    public boolean contains(TestElement original) {
+        return armed.containsKey(original);
+    }
+
+    public Breakpoint get(TestElement original) {
+        return armed.get(original);
+    }
+
+    /**
+     * Changes only when elements are added or removed, not when breakpoint settings change
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public synchronized void set(TestElement original, boolean state) {
+        Map<TestElement, Breakpoint> copy = new IdentityHashMap<>(armed);
+        if (state) {
+            Breakpoint bp = copy.get(original);
+            if (bp == null) {
+                bp = new Breakpoint();
+                copy.put(original, bp);
+            }
+            bp.configure(original);
+        } else if (copy.remove(original) == null) {
+            return;
+        }
+        boolean changed = copy.size() != armed.size();
+        armed = copy;
+        if (changed) {
+            version++;
+        }
+    }
+
+    public synchronized void rebuild(HashTree tree) {
+        final Map<TestElement, Breakpoint> old = armed;
+        final Map<TestElement, Breakpoint> found = new IdentityHashMap<>();
+        tree.traverse(new HashTreeTraverser() {
+            @Override
+            public void addNode(Object node, HashTree subTree) {
+                if (node instanceof TestElement) {
+                    TestElement te = (TestElement) node;
+                    if (te.getPropertyAsBoolean(Breakpoint.ENABLED, false)) {
+                        Breakpoint bp = old.get(te);
+                        if (bp == null) {
+                            bp = new Breakpoint();
+                        }
+                        bp.configure(te);
+                        found.put(te, bp);
+                    }
+                }
+            }
+
+            @Override
+            public void subtractNode() {
+            }
+
+            @Override
+            public void processPath() {
+            }
+        });
+        boolean changed = found.size() != old.size() || !found.keySet().containsAll(old.keySet());
+        armed = found;
+        if (changed) {
+            version++;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import com.blazemeter.jmeter.debugger.elements.Wrapper;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterVariables;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Pause state of single debugged thread, each one has own context and step gate
+ */
+public class DebuggedThread {
+    private final JMeterContext context;
+    private final String name;
+    private final StepGate gate = new StepGate();
+    private final VariablesTracker traceVariables = new VariablesTracker();
+    private final VariablesTracker historyVariables = new VariablesTracker();
+    private final StepHistory history;
+    private volatile boolean continuing;
+    private volatile boolean paused; // set before frontend hears of the pause, so its replies find the thread paused
+    private volatile Wrapper currentElement;
+    private Sampler lastKnownSampler;
+    private final Map<Breakpoint, long[]> hits = new IdentityHashMap<>(); // own hit counts, new run starts from zero
+
+    public DebuggedThread(JMeterContext context, String name, boolean continuing) {
+        this(context, name, continuing, new StepHistory(0, 1));
+    }
+
+    public DebuggedThread(JMeterContext context, String name, boolean continuing, StepHistory history) {
+        this.context = context;
+        this.name = name;
+        this.continuing = continuing;
+        this.history = history;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public JMeterContext getContext() {
+        return context;
+    }
+
+    public Wrapper getCurrentElement() {
+        return currentElement;
+    }
+
+    void setCurrentElement(Wrapper currentElement) {
+        this.currentElement = currentElement;
+    }
+
+    public Sampler getCurrentSampler() {
+        return context.getCurrentSampler();
+    }
+
+    /**
+     * Must be called from the debugged thread itself
+     */
+    boolean isSamplerChanged() {
+        Sampler sampler = getCurrentSampler();
+        if (sampler != lastKnownSampler) {
+            lastKnownSampler = sampler;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Must be called from the debugged thread itself
+     *
+     * @return variables changed since previous traced step, removed ones with null value
+     */
+    Map<String, Object> traceStep() {
+        JMeterVariables vars = context.getVariables();
+        return vars == null ? Collections.<String, Object>emptyMap() : traceVariables.update(vars);
+    }
+
+    /**
+     * Must be called from the debugged thread itself, only at steps it pauses on, so running at full speed costs nothing;
+     * changes are taken since previous remembered step
+     */
+    void rememberStep(Wrapper element) {
+        JMeterVariables vars = context.getVariables();
+        Map<String, Object> changes = vars == null ? Collections.<String, Object>emptyMap() : historyVariables.update(vars);
+        history.add(element, getCurrentSampler(), context.getPreviousResult(), changes, historyVariables);
+    }
+
+    /**
+     * Must be called from the debugged thread itself
+     *
+     * @return number of times this thread has hit the breakpoint, including this hit
+     */
+    long countHit(Breakpoint bp) {
+        long[] count = hits.get(bp);
+        if (count == null) {
+            count = new long[1];
+            hits.put(bp, count);
+        }
+        return ++count[0];
+    }
+
+    public StepHistory getHistory() {
+        return history;
+    }
+
+    StepGate getGate() {
+        return gate;
+    }
+
+    public boolean isContinuing() {
+        return continuing;
+    }
+
+    /**
+     * @return true from the moment frontend is told about the pause until the thread is released
+     */
+    public boolean isFrozen() {
+        return paused;
+    }
+
+    void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    public void pause() {
+        continuing = false;
+    }
+
+    public void continueRun() {
+        continuing = true;
+        gate.release(StepGate.Token.CONTINUE);
+    }
+
+    public void proceed() {
+        gate.release(StepGate.Token.STEP);
+    }
+
+    void stop() {
+        gate.release(StepGate.Token.STOP);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,619 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+
+import com.blazemeter.jmeter.debugger.elements.AssertionDebug;
+import com.blazemeter.jmeter.debugger.elements.DebuggingThreadGroup;
+import com.blazemeter.jmeter.debugger.elements.OriginalLink;
+import com.blazemeter.jmeter.debugger.elements.PostProcessorDebug;
+import com.blazemeter.jmeter.debugger.elements.TimerDebug;
+import com.blazemeter.jmeter.debugger.elements.Wrapper;
+import com.blazemeter.jmeter.debugger.trace.TraceRecorder;
+import org.apache.jmeter.engine.JMeterEngineException;
+import org.apache.jmeter.engine.StandardJMeterEngine;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.TestStateListener;
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterContextServiceAccessor;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.SearchByClass;
+import org.apache.jorphan.util.JMeterStopThreadException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class Debugger implements PassThroughTrigger, SampleReplayer {
+    private static final Logger log = LoggerFactory.getLogger(Debugger.class);
+    private static final BreakpointRegistry breakpoints = new BreakpointRegistry();
+    private static final PreparedTreeCache preparedTrees = new PreparedTreeCache();
+    private final DebuggerFrontend frontend;
+    private final TestTreeProvider treeProvider;
+    private HashTree selectedTree;
+    private volatile Instrumentation instrumentation; // of selected tree, null if fully wrapped
+    private volatile boolean stopping;
+    protected DebuggerEngine engine;
+    private final List<DebuggedThread> threads = new CopyOnWriteArrayList<>();
+    private volatile ThreadLocal<DebuggedThread> localThread = new ThreadLocal<>();
+    private volatile DebuggedThread selected;
+    private volatile boolean continuing = false; // initial state for threads not started yet
+    private int threadCount = 1;
+    private boolean breakpointOnly = JMeterUtils.getPropDefault("debugger.breakpoint.only", false);
+    private final LogpointQueue logpoints = new LogpointQueue(JMeterUtils.getPropDefault("debugger.logpoint.queue", 10000));
+    private File traceFile = getDefaultTraceFile();
+    private long historyBudget = JMeterUtils.getPropDefault("debugger.history.budget", 16L * 1024 * 1024);
+    private final int checkpointInterval = JMeterUtils.getPropDefault("debugger.history.checkpoint", 50);
+    private volatile TraceRecorder recorder;
+    private File replayDir = getDefaultReplayDir();
+    private volatile ReplayCache replay;
+
+    public Debugger(TestTreeProvider treeProvider, DebuggerFrontend frontend) {
+        this.treeProvider = treeProvider;
+        this.frontend = frontend;
+
+        AbstractThreadGroup[] grps = getThreadGroups();
+        if (grps.length > 0) {
+            selectThreadGroup(grps[0]);
+        } else {
+            log.debug("Empty test plan");
+        }
+    }
+
+    public AbstractThreadGroup[] getThreadGroups() {
+        SearchClass<AbstractThreadGroup> searcher = new SearchClass<>(AbstractThreadGroup.class);
+        treeProvider.getTestTree().traverse(searcher);
+        return searcher.getSearchResults().toArray(new AbstractThreadGroup[0]);
+    }
+
+    public void selectThreadGroup(AbstractThreadGroup tg) {
+        log.debug("Selecting thread group " + tg.getName() + ": " + tg);
+        HashTree testTree = treeProvider.getTestTree();
+        breakpoints.rebuild(testTree);
+        long version = treeProvider instanceof StampedTreeProvider
+                ? ((StampedTreeProvider) treeProvider).getModificationStamp() : TreeVersion.of(testTree);
+        if (breakpointOnly) {
+            version = (version * 31 + breakpoints.getVersion()) * 31 + 1;
+        }
+        selectedTree = preparedTrees.get(tg, version, testTree);
+        if (selectedTree == null) {
+            TreeClonerTG cloner = breakpointOnly ? new TreeClonerTG(tg, new Instrumentation(breakpoints.getVersion())) : new TreeClonerTG(tg);
+            testTree.traverse(cloner);
+            selectedTree = cloner.getClonedTree();
+            preparedTrees.put(tg, version, testTree, selectedTree);
+        } else {
+            log.debug("Reusing prepared tree for " + tg.getName());
+        }
+
+        SearchByClass<DebuggingThreadGroup> tgs = new SearchByClass<>(DebuggingThreadGroup.class);
+        selectedTree.traverse(tgs);
+        instrumentation = tgs.getSearchResults().isEmpty() ? null : tgs.getSearchResults().iterator().next().getInstrumentation();
+    }
+
+    public boolean isBreakpointOnly() {
+        return breakpointOnly;
+    }
+
+    /**
+     * In breakpoint-only mode only elements with breakpoints and their children are wrapped,
+     * breakpoints added during run are instrumented at next iteration of the thread
+     */
+    public void setBreakpointOnly(boolean breakpointOnly) {
+        this.breakpointOnly = breakpointOnly;
+    }
+
+    private static File getDefaultTraceFile() {
+        String path = JMeterUtils.getProperty("debugger.trace.file");
+        return path == null || path.isEmpty() ? null : new File(path);
+    }
+
+    private static File getDefaultReplayDir() {
+        String path = JMeterUtils.getProperty("debugger.replay.dir");
+        return path == null || path.isEmpty() ? null : new File(path);
+    }
+
+    public File getReplayDir() {
+        return replayDir;
+    }
+
+    /**
+     * Next runs store sample results there and serve them instead of running samplers again; null turns replay off
+     */
+    public void setReplayDir(File replayDir) {
+        this.replayDir = replayDir;
+    }
+
+    /**
+     * Makes next runs send requests of the sampler for real
+     *
+     * @return number of stored results removed
+     */
+    public int forgetReplayed(TestElement sampler) {
+        ReplayCache cache = replay;
+        if (cache == null && replayDir != null) {
+            cache = new ReplayCache(replayDir);
+        }
+        return cache == null ? 0 : cache.invalidate(resolveOriginal(sampler));
+    }
+
+    public File getTraceFile() {
+        return traceFile;
+    }
+
+    /**
+     * Records every step of next runs into given journal, overwriting it on each start; null turns recording off
+     */
+    public void setTraceFile(File traceFile) {
+        this.traceFile = traceFile;
+    }
+
+    /**
+     * @return runnable tree of selected thread group, its elements are shared with display tree
+     */
+    public HashTree getSelectedTree() {
+        if (selectedTree == null) {
+            throw new IllegalStateException();
+        }
+        return selectedTree;
+    }
+
+    public void start() {
+        log.debug("Start debugging");
+        frontend.started();
+
+        HashTree hashTree = getSelectedTree();
+        threads.clear();
+        selected = null;
+        localThread = new ThreadLocal<>();
+        logpoints.clear();
+        openRecorder();
+        replay = replayDir == null ? null : new ReplayCache(replayDir);
+        StandardJMeterEngine.register(new StateListener()); // oh, dear, they use static field then clean it...
+        engine = new DebuggerEngine(JMeterContextService.getContext());
+        engine.setStepper(this);
+        SearchByClass<DebuggingThreadGroup> tgs = new SearchByClass<>(DebuggingThreadGroup.class);
+        hashTree.traverse(tgs);
+        for (DebuggingThreadGroup tg : tgs.getSearchResults()) {
+            tg.setNumThreads(threadCount);
+        }
+        engine.configure(hashTree);
+        try {
+            engine.runTest();
+        } catch (JMeterEngineException e) {
+            log.error("Failed to pauseContinue debug", e);
+            stop();
+        }
+    }
+
+    public void stop() {
+        log.debug("Stop debugging");
+
+        if (stopping) {
+            throw new IllegalStateException("Already stopping");
+        }
+
+        stopping = true;
+        for (DebuggedThread thread : threads) {
+            thread.stop();
+        }
+        try {
+            if (engine != null && engine.isActive()) {
+                engine.stopTest(true);
+            }
+        } finally {
+            stopping = false;
+            closeRecorder();
+            replay = null;
+            frontend.stopped();
+            JMeterContextServiceAccessor.removeContext();
+            threads.clear();
+            selected = null;
+        }
+    }
+
+    private void openRecorder() {
+        if (traceFile != null) {
+            try {
+                recorder = new TraceRecorder(traceFile);
+            } catch (IOException e) {
+                log.warn("Failed to open trace journal " + traceFile, e);
+            }
+        }
+    }
+
+    private void closeRecorder() {
+        TraceRecorder rec = recorder;
+        recorder = null;
+        if (rec != null) {
+            try {
+                rec.close();
+            } catch (IOException e) {
+                log.warn("Failed to close trace journal", e);
+            }
+        }
+    }
+
+    @Override
+    public void stepOn(Wrapper wrapper) {
+        if (stopping) {
+            throw new JMeterStopThreadException();
+        }
+
+        DebuggedThread thread = getDebuggedThread();
+        TestElement wrappedElement = (TestElement) wrapper.getWrappedElement();
+
+        if (wrapper instanceof TimerDebug) {
+            ((TimerDebug) wrapper).setDelaying(thread.isContinuing());
+        }
+
+        thread.setCurrentElement(wrapper);
+
+        TraceRecorder rec = recorder;
+        if (rec != null) {
+            Map<String, Object> changes = thread.traceStep();
+            Sampler sampler = thread.getCurrentSampler();
+            Instrumentation instr = getThreadInstrumentation();
+            rec.record(thread.getName(), wrapper.getClass(), getOriginal(wrapper, instr), sampler == null ? null : getOriginal(sampler, instr), changes);
+        }
+
+        boolean isBP = thread.isSamplerChanged() && isBreakpointHit(thread, thread.getCurrentSampler(), true);
+        isBP = isBreakpointHit(thread, wrapper, false) || isBP;
+        if (thread.isContinuing() && isBP) {
+            thread.pause();
+            DebuggedThread current = selected;
+            if (current != thread && current != null && current.isContinuing()) {
+                selected = thread; // bring paused thread to front
+            }
+        }
+
+        if (!thread.isContinuing()) {
+            if (historyBudget > 0) {
+                thread.rememberStep(wrapper);
+            }
+            StepGate gate = thread.getGate();
+            gate.reset();
+            thread.setPaused(true);
+            try {
+                if (thread == selected) {
+                    frontend.statusRefresh(StatusSnapshot.of(thread));
+                    frontend.frozenAt(wrapper);
+                }
+
+                log.debug("Stopping before: " + wrappedElement);
+                if (gate.await() == StepGate.Token.STOP) {
+                    throw new JMeterStopThreadException();
+                }
+            } catch (InterruptedException e) {
+                log.debug("Interrupted", e);
+                throw new JMeterStopThreadException(e);
+            } finally {
+                thread.setPaused(false);
+            }
+
+            if (thread == selected) {
+                frontend.continuing();
+            }
+        }
+    }
+
+    @Override
+    public SampleResult sample(Sampler sampler, Entry entry) {
+        ReplayCache cache = replay;
+        if (cache == null || !(sampler instanceof TestElement)) {
+            return sampler.sample(entry);
+        }
+
+        TestElement te = (TestElement) sampler;
+        String key = ReplayCache.getRequestKey(te);
+        SampleResult res = cache.get(te, key);
+        if (res == null) {
+            res = sampler.sample(entry);
+            if (cache.isStorable(res)) {
+                cache.put(te, key, res);
+            }
+        } else {
+            log.debug("Replaying stored result of " + te.getName());
+        }
+        return res;
+    }
+
+    private DebuggedThread getDebuggedThread() {
+        DebuggedThread thread = localThread.get();
+        if (thread == null) {
+            thread = new DebuggedThread(JMeterContextService.getContext(), Thread.currentThread().getName(), continuing,
+                    new StepHistory(historyBudget, checkpointInterval));
+            localThread.set(thread);
+            threads.add(thread);
+            if (selected == null) {
+                selected = thread;
+            }
+        }
+        return thread;
+    }
+
+    /**
+     * Evaluates breakpoint on debugged thread, logpoints write their message here and never pause
+     */
+    private boolean isBreakpointHit(DebuggedThread thread, TestElement te, boolean samplerScope) {
+        te = getOriginal(te, getThreadInstrumentation());
+        Breakpoint bp = breakpoints.get(te);
+        if (bp == null || (samplerScope && bp.isCounting())) {
+            return false;
+        }
+
+        if (!thread.isContinuing() && !bp.isCounting()) {
+            return false; // will stop anyway, no need to evaluate condition
+        }
+
+        if (!bp.isHit(thread)) {
+            return false;
+        }
+
+        if (bp.isLogpoint()) {
+            logpoints.offer(thread.getName() + " " + te.getName() + ": " + bp.formatMessage(thread.getContext()));
+            return false;
+        }
+        return true;
+    }
+
+    public List<DebuggedThread> getThreads() {
+        return Collections.unmodifiableList(threads);
+    }
+
+    public DebuggedThread getSelectedThread() {
+        return selected;
+    }
+
+    /**
+     * Makes controls and status refresh follow given thread
+     */
+    public void selectThread(DebuggedThread thread) {
+        if (thread == selected || !threads.contains(thread)) {
+            return;
+        }
+
+        selected = thread;
+        frontend.statusRefresh(StatusSnapshot.of(thread));
+        if (thread.isFrozen()) {
+            frontend.frozenAt(thread.getCurrentElement());
+        } else {
+            frontend.continuing();
+        }
+    }
+
+    public long getHistoryBudget() {
+        return historyBudget;
+    }
+
+    /**
+     * Memory each debugged thread may use to remember steps it paused on, 0 turns step-back off;
+     * steps run through while continuing are not remembered
+     */
+    public void setHistoryBudget(long historyBudget) {
+        this.historyBudget = historyBudget;
+    }
+
+    /**
+     * @return past state of selected thread, 0 steps back being its current step; null if not remembered
+     */
+    public HistoryFrame getHistoryFrame(int stepsBack) {
+        DebuggedThread thread = selected;
+        return thread == null ? null : thread.getHistory().get(stepsBack);
+    }
+
+    /**
+     * Prepares re-run of the element selected thread is paused on, using element's current edited state
+     *
+     * @throws IllegalStateException if the thread is not paused on post-processor or assertion
+     */
+    public Rerun getRerun() {
+        DebuggedThread thread = selected;
+        if (thread == null || !thread.isFrozen()) {
+            throw new IllegalStateException("Thread is not paused");
+        }
+        Wrapper wrapper = thread.getCurrentElement();
+        if (!(wrapper instanceof PostProcessorDebug) && !(wrapper instanceof AssertionDebug)) {
+            throw new IllegalStateException("Thread is not paused on post-processor or assertion");
+        }
+        return Rerun.of(resolveOriginal((TestElement) wrapper), thread.getContext());
+    }
+
+    /**
+     * @return number of steps of selected thread available for step-back, including current one
+     */
+    public int getHistorySize() {
+        DebuggedThread thread = selected;
+        return thread == null ? 0 : thread.getHistory().size();
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    public void pause() {
+        DebuggedThread thread = selected;
+        if (thread == null) {
+            continuing = false;
+        } else {
+            thread.pause();
+        }
+    }
+
+    public void continueRun() {
+        DebuggedThread thread = selected;
+        if (thread == null) {
+            continuing = true;
+        } else {
+            thread.continueRun();
+        }
+    }
+
+    public Wrapper getCurrentElement() {
+        DebuggedThread thread = selected;
+        return thread == null ? null : thread.getCurrentElement();
+    }
+
+    public Sampler getCurrentSampler() {
+        DebuggedThread thread = selected;
+        return thread == null ? null : thread.getCurrentSampler();
+    }
+
+    public boolean isContinuing() {
+        DebuggedThread thread = selected;
+        return thread == null ? continuing : thread.isContinuing();
+    }
+
+    @Override
+    public boolean isPassThrough() {
+        if (!breakpoints.isEmpty() || stopping || recorder != null) {
+            return false;
+        }
+        DebuggedThread thread = localThread.get();
+        return thread == null ? continuing : thread.isContinuing();
+    }
+
+    public static boolean isBreakpoint(TestElement te) {
+        te = getOriginal(te);
+        return breakpoints.contains(te);
+    }
+
+    public static void toggleBreakpoint(TestElement te) {
+        te = getOriginal(te);
+        boolean isBP = !te.getPropertyAsBoolean(Breakpoint.ENABLED, false);
+        te.setProperty(Breakpoint.ENABLED, isBP);
+        breakpoints.set(te, isBP);
+    }
+
+    public static String getBreakpointCondition(TestElement te) {
+        return getOriginal(te).getPropertyAsString(Breakpoint.CONDITION);
+    }
+
+    /**
+     * Sets condition like ${__jexl3(${counter} > 500)} and arms the breakpoint
+     */
+    public static void setBreakpointCondition(TestElement te, String condition) {
+        te = getOriginal(te);
+        te.setProperty(Breakpoint.CONDITION, condition);
+        armBreakpoint(te);
+    }
+
+    public static String getLogMessage(TestElement te) {
+        return getOriginal(te).getPropertyAsString(Breakpoint.LOG_MESSAGE);
+    }
+
+    /**
+     * Non-empty message turns breakpoint into logpoint that never pauses
+     */
+    public static void setLogMessage(TestElement te, String message) {
+        te = getOriginal(te);
+        te.setProperty(Breakpoint.LOG_MESSAGE, message);
+        armBreakpoint(te);
+    }
+
+    public static int getHitCount(TestElement te) {
+        return getOriginal(te).getPropertyAsInt(Breakpoint.HIT_COUNT, 0);
+    }
+
+    public static boolean isHitEvery(TestElement te) {
+        return getOriginal(te).getPropertyAsBoolean(Breakpoint.HIT_EVERY, false);
+    }
+
+    public static void setHitCount(TestElement te, int count, boolean every) {
+        te = getOriginal(te);
+        te.setProperty(Breakpoint.HIT_COUNT, count);
+        te.setProperty(Breakpoint.HIT_EVERY, every);
+        armBreakpoint(te);
+    }
+
+    private static void armBreakpoint(TestElement original) {
+        original.setProperty(Breakpoint.ENABLED, true);
+        breakpoints.set(original, true);
+    }
+
+    /**
+     * Static breakpoint methods take plan elements or wrappers, elements left unwrapped by breakpoint-only mode
+     * must be resolved with {@link #resolveOriginal(TestElement)} of the debugger whose tree they come from
+     */
+    private static TestElement getOriginal(TestElement te) {
+        return getOriginal(te, null);
+    }
+
+    /**
+     * @return plan element the element of selected tree was cloned from
+     */
+    public TestElement resolveOriginal(TestElement te) {
+        return getOriginal(te, instrumentation);
+    }
+
+    private static TestElement getOriginal(TestElement te, Instrumentation instr) {
+        if (te instanceof OriginalLink) {
+            te = (TestElement) ((OriginalLink) te).getOriginal();
+        } else {
+            TestElement original = instr == null ? null : instr.getOriginal(te);
+            if (original != null) {
+                te = original;
+            }
+        }
+        return te;
+    }
+
+    /**
+     * Must be called on debugged thread, its thread group carries instrumentation of the tree it runs
+     */
+    private Instrumentation getThreadInstrumentation() {
+        AbstractThreadGroup tg = JMeterContextService.getContext().getThreadGroup();
+        return tg instanceof DebuggingThreadGroup ? ((DebuggingThreadGroup) tg).getInstrumentation() : instrumentation;
+    }
+
+    /**
+     * @return changes each time set of breakpoint elements changes
+     */
+    public static long getBreakpointsVersion() {
+        return breakpoints.getVersion();
+    }
+
+    public List<String> drainLogpoints() {
+        return logpoints.drain();
+    }
+
+    public void proceed() {
+        DebuggedThread thread = selected;
+        if (thread != null) {
+            thread.proceed();
+        }
+    }
+
+    private class StateListener implements TestStateListener {
+        @Override
+        public void testEnded() {
+            stop();
+        }
+
+        @Override
+        public void testStarted() {
+
+        }
+
+        @Override
+        public void testStarted(String host) {
+
+        }
+
+        @Override
+        public void testEnded(String host) {
+
+        }
+    }
+}
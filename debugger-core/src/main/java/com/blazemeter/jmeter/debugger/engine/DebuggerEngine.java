@@ -7,14 +7,18 @@ import org.apache.jmeter.threads.JMeterContextService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 
 public class DebuggerEngine extends StandardJMeterEngine {
     private static final Logger log = LoggerFactory.getLogger(DebuggerEngine.class);
 
     private final JMeterContext context;
 
-    private Thread thread;
-    private DebuggingThread target;
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+    private final List<DebuggingThread> targets = new CopyOnWriteArrayList<>();
     private StepTrigger stepper = new StepTrigger() {
         @Override
         public void stepOn(Wrapper t) {
@@ -38,18 +42,13 @@ public class DebuggerEngine extends StandardJMeterEngine {
         return stepper;
     }
 
-    public void setTarget(DebuggingThread target) {
-        if (this.target != null) {
-            throw new IllegalStateException();
-        }
-        this.target = target;
+    public void addThread(DebuggingThread target, Thread thread) {
+        targets.add(target);
+        threads.add(thread);
     }
 
-    public void setThread(Thread thread) {
-        if (this.thread != null) {
-            throw new IllegalStateException();
-        }
-        this.thread = thread;
+    public List<DebuggingThread> getTargets() {
+        return Collections.unmodifiableList(targets);
     }
 
 
@@ -57,7 +56,13 @@ public class DebuggerEngine extends StandardJMeterEngine {
     public synchronized void stopTest(boolean now) {
         super.stopTest(now);
 
-        if (thread != null && thread.isAlive()) {
+        for (Thread thread : threads) {
+            joinThread(thread);
+        }
+    }
+
+    private void joinThread(Thread thread) {
+        if (thread.isAlive()) {
             log.debug("Joining thread: " + thread);
             try {
                 thread.join(10000); // last resort wait
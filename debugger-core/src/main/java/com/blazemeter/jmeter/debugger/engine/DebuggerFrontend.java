@@ -1,7 +1,6 @@
 package com.blazemeter.jmeter.debugger.engine;
 
 import com.blazemeter.jmeter.debugger.elements.Wrapper;
-import org.apache.jmeter.threads.JMeterContext;
 
 public interface DebuggerFrontend {
     void started();
@@ -12,5 +11,8 @@ public interface DebuggerFrontend {
 
     void frozenAt(Wrapper wrapper);
 
-    void statusRefresh(JMeterContext context);
+    /**
+     * Called on debugged thread when it freezes, implementations should hand the snapshot over rather than render it here
+     */
+    void statusRefresh(StatusSnapshot snapshot);
 }
@@ -0,0 +1,212 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import org.apache.jmeter.engine.util.CompoundVariable;
+import org.apache.jmeter.functions.InvalidVariableException;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Evaluates one JMeter expression, or batch of them, against debugged thread's context on a worker thread.
+ * Expression is parsed once per text change; each new evaluation cancels the previous one, whose result is dropped.
+ * Script functions ignoring interrupts cannot be stopped, so timed out worker is abandoned and replaced.
+ * Evaluation works on live context of the thread, so frontend must call {@link #threadResumed()} before the thread moves on.
+ */
+public class ExpressionEvaluator {
+    private static final Logger log = LoggerFactory.getLogger(ExpressionEvaluator.class);
+    private static final ThreadFactory DAEMONS = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "debugger-evaluate");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private final long timeout;
+    private final ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, DAEMONS);
+    private ExecutorService worker;
+    private Future<?> running;
+    private Future<?> deadline;
+    private int generation;
+    private String expression = "";
+    private CompoundVariable compiled;
+    private InvalidVariableException parseError;
+    private boolean resumed; // debugged thread runs, its context must not be touched until it pauses again
+
+    public ExpressionEvaluator() {
+        this(JMeterUtils.getPropDefault("debugger.evaluate.timeout", 5000L));
+    }
+
+    /**
+     * @param timeout milliseconds evaluation may take before it is cancelled
+     */
+    public ExpressionEvaluator(long timeout) {
+        this.timeout = timeout;
+        watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @return milliseconds evaluation may take before it is cancelled
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public synchronized String getExpression() {
+        return expression;
+    }
+
+    /**
+     * Parses expression if it differs from the current one
+     */
+    public synchronized void setExpression(String text) {
+        text = text == null ? "" : text;
+        if (text.equals(expression)) {
+            return;
+        }
+
+        expression = text;
+        compiled = null;
+        parseError = null;
+        if (!text.isEmpty()) {
+            CompoundVariable function = new CompoundVariable();
+            try {
+                function.setParameters(text);
+                compiled = function;
+            } catch (InvalidVariableException e) {
+                parseError = e;
+            }
+        }
+    }
+
+    /**
+     * Starts evaluation, cancelling the one in progress; callback is not called for empty expression
+     * nor for evaluations superseded by later call
+     */
+    public synchronized void evaluate(final JMeterContext context, Callback<String> callback) {
+        cancel();
+        if (parseError != null) {
+            callback.evaluated(null, parseError);
+            return;
+        }
+        if (compiled == null) {
+            return;
+        }
+
+        final CompoundVariable function = compiled;
+        submit(context, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return function.execute(context.getPreviousResult(), context.getCurrentSampler());
+            }
+        }, callback);
+    }
+
+    /**
+     * Runs arbitrary evaluation job under the same rules: cancels previous one, bounded by timeout
+     */
+    public synchronized <T> void submit(final JMeterContext context, final Callable<T> job, final Callback<T> callback) {
+        cancel();
+        if (resumed) {
+            callback.evaluated(null, new IllegalStateException("Thread is running, pause it to evaluate"));
+            return;
+        }
+        final int gen = generation;
+        if (worker == null) {
+            worker = Executors.newSingleThreadExecutor(DAEMONS);
+        }
+        final Future<?> task = worker.submit(new Runnable() {
+            @Override
+            public void run() {
+                JMeterContext own = JMeterContextService.getContext();
+                JMeterContextService.replaceContext(context); // functions see variables of debugged thread
+                T result = null;
+                Throwable error = null;
+                try {
+                    result = job.call();
+                } catch (Throwable e) {
+                    error = e;
+                } finally {
+                    JMeterContextService.replaceContext(own);
+                }
+                deliver(gen, result, error, callback);
+            }
+        });
+        running = task;
+
+        deadline = watchdog.schedule(new Runnable() {
+            @Override
+            public void run() {
+                timedOut(gen, task, callback);
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void timedOut(int gen, Future<?> task, Callback<?> callback) {
+        if (gen == generation && task == running) {
+            cancel();
+            callback.evaluated(null, new TimeoutException("Evaluation took longer than " + timeout + " ms"));
+        }
+    }
+
+    private synchronized <T> void deliver(int gen, T result, Throwable error, Callback<T> callback) {
+        if (gen == generation) {
+            running = null;
+            deadline.cancel(false);
+            callback.evaluated(result, error);
+        }
+    }
+
+    /**
+     * Drops evaluation in progress, if any
+     */
+    public synchronized void cancel() {
+        generation++;
+        if (running != null && !running.isDone()) {
+            log.debug("Cancelling evaluation of " + expression);
+            running.cancel(true);
+            worker.shutdownNow();
+            worker = null; // may still be stuck in a script, next evaluation gets fresh one
+        }
+        running = null;
+        if (deadline != null) {
+            deadline.cancel(false);
+            deadline = null;
+        }
+    }
+
+    /**
+     * Called on debugged thread before it continues: cancels evaluation in progress and refuses new ones
+     * until {@link #threadPaused()}, so scripts never read or write variables of running thread
+     */
+    public synchronized void threadResumed() {
+        resumed = true;
+        cancel();
+    }
+
+    /**
+     * Called when debugged thread pauses, before frontend is told about it
+     */
+    public synchronized void threadPaused() {
+        resumed = false;
+    }
+
+    public interface Callback<T> {
+        /**
+         * Called on worker or caller thread, error is null on success
+         */
+        void evaluated(T result, Throwable error);
+    }
+}
@@ -0,0 +1,52 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import com.blazemeter.jmeter.debugger.elements.Wrapper;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.Sampler;
+
+import java.util.Map;
+
+/**
+ * State of debugged thread as it was at one of its past steps
+ */
+public class HistoryFrame {
+    private final int stepsBack;
+    private final Wrapper element;
+    private final Sampler sampler;
+    private final SampleResult previousResult;
+    private final Map<String, Object> variables;
+
+    public HistoryFrame(int stepsBack, Wrapper element, Sampler sampler, SampleResult previousResult, Map<String, Object> variables) {
+        this.stepsBack = stepsBack;
+        this.element = element;
+        this.sampler = sampler;
+        this.previousResult = previousResult;
+        this.variables = variables;
+    }
+
+    /**
+     * @return 0 for current step, 1 for the one before it and so on
+     */
+    public int getStepsBack() {
+        return stepsBack;
+    }
+
+    public Wrapper getElement() {
+        return element;
+    }
+
+    public Sampler getSampler() {
+        return sampler;
+    }
+
+    public SampleResult getPreviousResult() {
+        return previousResult;
+    }
+
+    /**
+     * @return read-only variables of the thread at that step
+     */
+    public Map<String, Object> getVariables() {
+        return variables;
+    }
+}
@@ -0,0 +1,39 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import org.apache.jmeter.testelement.TestElement;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Breakpoint-only instrumentation state of one runnable tree:
+ * breakpoints version it was built for and originals of elements left unwrapped
+ */
+public class Instrumentation {
+    private final Map<TestElement, TestElement> originals = Collections.synchronizedMap(new IdentityHashMap<TestElement, TestElement>());
+    private final long version;
+
+    public Instrumentation(long version) {
+        this.version = version;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return true if breakpoints were added or removed since tree was built
+     */
+    public boolean isOutdated() {
+        return version != Debugger.getBreakpointsVersion();
+    }
+
+    public void link(TestElement element, TestElement original) {
+        originals.put(element, original);
+    }
+
+    public TestElement getOriginal(TestElement element) {
+        return originals.get(element);
+    }
+}
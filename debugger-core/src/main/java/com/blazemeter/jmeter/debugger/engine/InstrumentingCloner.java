@@ -0,0 +1,74 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import com.blazemeter.jmeter.debugger.elements.DebuggingThreadGroup;
+import com.blazemeter.jmeter.debugger.elements.OriginalLink;
+import org.apache.jmeter.engine.util.NoThreadClone;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.HashTreeTraverser;
+import org.apache.jorphan.collections.ListedHashTree;
+
+import java.util.LinkedList;
+
+/**
+ * Per-thread copy of runnable tree built with breakpoint-only instrumentation.
+ * Wraps elements that got a breakpoint since the source tree was built, keeps existing wrappers.
+ */
+public class InstrumentingCloner implements HashTreeTraverser {
+    private final Instrumentation source;
+    private final Instrumentation target = new Instrumentation(Debugger.getBreakpointsVersion());
+    private final ListedHashTree newTree = new ListedHashTree();
+    private final LinkedList<HashTree> subTrees = new LinkedList<>();
+    private int instrumentedDepth = 0;
+
+    public InstrumentingCloner(Instrumentation source) {
+        this.source = source;
+    }
+
+    @Override
+    public void addNode(Object node, HashTree subTree) {
+        TestElement te = (TestElement) node;
+        TestElement orig = te instanceof OriginalLink ? (TestElement) ((OriginalLink) te).getOriginal() : source.getOriginal(te);
+        if (instrumentedDepth > 0 || (orig != null && Debugger.isBreakpoint(orig))) {
+            instrumentedDepth++;
+        }
+
+        TestElement res;
+        if (te instanceof OriginalLink) {
+            res = (TestElement) te.clone();
+        } else if (instrumentedDepth > 0 && orig != null) {
+            res = TreeClonerTG.instrument(cloneElement(te), orig);
+        } else {
+            res = cloneElement(te);
+        }
+
+        if (res instanceof DebuggingThreadGroup) {
+            ((DebuggingThreadGroup) res).setInstrumentation(target);
+        } else if (orig != null && !(res instanceof OriginalLink)) {
+            target.link(res, orig);
+        }
+
+        HashTree parent = subTrees.isEmpty() ? newTree : subTrees.getLast();
+        subTrees.addLast(parent.add(res));
+    }
+
+    private TestElement cloneElement(TestElement te) {
+        return te instanceof NoThreadClone ? te : (TestElement) te.clone();
+    }
+
+    @Override
+    public void subtractNode() {
+        subTrees.removeLast();
+        if (instrumentedDepth > 0) {
+            instrumentedDepth--;
+        }
+    }
+
+    @Override
+    public void processPath() {
+    }
+
+    public ListedHashTree getClonedTree() {
+        return newTree;
+    }
+}
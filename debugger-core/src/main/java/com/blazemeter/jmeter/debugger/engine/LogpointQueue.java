@@ -0,0 +1,41 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded hand-off of logpoint output from debugged thread to frontend.
+ * Never blocks the producer, overflowing messages are counted and dropped.
+ */
+public class LogpointQueue {
+    private final BlockingQueue<String> queue;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public LogpointQueue(int capacity) {
+        queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public void offer(String message) {
+        if (!queue.offer(message)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public List<String> drain() {
+        List<String> res = new ArrayList<>(queue.size());
+        queue.drainTo(res);
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            res.add("... " + lost + " logpoint messages dropped");
+        }
+        return res;
+    }
+
+    public void clear() {
+        queue.clear();
+        dropped.set(0);
+    }
+}
@@ -0,0 +1,8 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+/**
+ * Stepper that can tell wrappers to skip the step call entirely.
+ */
+public interface PassThroughTrigger extends StepTrigger {
+    boolean isPassThrough();
+}
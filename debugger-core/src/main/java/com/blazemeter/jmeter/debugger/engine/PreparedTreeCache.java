@@ -0,0 +1,80 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.HashTreeTraverser;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Debug trees prepared for thread groups of one test plan version.
+ * Any change of the plan drops all of them. Version alone is not trusted:
+ * tree is reused only if the plan still consists of the same elements in the same order.
+ */
+public class PreparedTreeCache {
+    private final Map<AbstractThreadGroup, HashTree> trees = new IdentityHashMap<>();
+    private long version;
+    private List<Object> elements;
+
+    public synchronized HashTree get(AbstractThreadGroup tg, long version, HashTree testTree) {
+        if (this.version != version || elements == null || !isSameElements(elements, getElements(testTree))) {
+            trees.clear();
+            this.version = version;
+            elements = null;
+            return null;
+        }
+        return trees.get(tg);
+    }
+
+    public synchronized void put(AbstractThreadGroup tg, long version, HashTree testTree, HashTree tree) {
+        if (this.version == version) {
+            if (elements == null) {
+                elements = getElements(testTree);
+            }
+            trees.put(tg, tree);
+        }
+    }
+
+    public synchronized void clear() {
+        trees.clear();
+        elements = null;
+    }
+
+    private static boolean isSameElements(List<Object> cached, List<Object> current) {
+        if (cached.size() != current.size()) {
+            return false;
+        }
+        for (int n = 0; n < cached.size(); n++) {
+            if (cached.get(n) != current.get(n)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return element identities in traversal order, level ends marked with null so nesting counts
+     */
+    private static List<Object> getElements(HashTree testTree) {
+        final List<Object> res = new ArrayList<>();
+        testTree.traverse(new HashTreeTraverser() {
+            @Override
+            public void addNode(Object node, HashTree subTree) {
+                res.add(node);
+            }
+
+            @Override
+            public void subtractNode() {
+                res.add(null);
+            }
+
+            @Override
+            public void processPath() {
+            }
+        });
+        return res;
+    }
+}
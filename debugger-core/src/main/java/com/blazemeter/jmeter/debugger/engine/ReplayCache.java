@@ -0,0 +1,299 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.property.JMeterProperty;
+import org.apache.jmeter.testelement.property.MultiProperty;
+import org.apache.jmeter.testelement.property.PropertyIterator;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Sample results stored on disk by sampler and resolved request, one directory per sampler.
+ * Sampler is identified by its class and name, which survive JMeter restarts unlike element instances;
+ * request is the hash of all sampler properties as resolved in the debugged thread.
+ * Only successful results are worth storing unless <code>debugger.replay.failed</code> is set:
+ * connection error or server failure replayed forever would hide the fixed server.
+ * Entries are deserialized, so directory must belong to current user and be closed to others,
+ * and only sample result types are accepted from it.
+ */
+public class ReplayCache {
+    private static final Logger log = LoggerFactory.getLogger(ReplayCache.class);
+    private static final String SUFFIX = ".sample";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final Set<String> ALLOWED_TYPES = new HashSet<>(Arrays.asList(
+            "java.lang.String", "java.lang.Number", "java.lang.Integer", "java.lang.Long", "java.lang.Boolean",
+            "java.util.ArrayList", "java.util.LinkedList", "java.util.HashSet", "java.util.LinkedHashSet", "java.net.URL"));
+
+    private final File dir;
+    private final boolean storeFailed;
+    private Boolean safe;
+
+    public ReplayCache(File dir) {
+        this(dir, JMeterUtils.getPropDefault("debugger.replay.failed", false));
+    }
+
+    /**
+     * @param storeFailed store unsuccessful results as well
+     */
+    public ReplayCache(File dir, boolean storeFailed) {
+        this.dir = dir;
+        this.storeFailed = storeFailed;
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * @return per-user default, shared temp directory would let other users plant entries
+     */
+    public static File getDefaultDir() {
+        return new File(new File(System.getProperty("user.home"), ".jmeter-debugger"), "replay");
+    }
+
+    /**
+     * @return directory name for sampler, readable part followed by hash of class and name
+     */
+    public static String getSamplerId(TestElement sampler) {
+        String name = sampler.getName() == null ? "" : sampler.getName();
+        String readable = name.replaceAll("[^A-Za-z0-9._-]+", "_");
+        if (readable.length() > 32) {
+            readable = readable.substring(0, 32);
+        }
+        return readable + "-" + hash(sampler.getClass().getName() + "\n" + name).substring(0, 16);
+    }
+
+    /**
+     * Must be called on debugged thread, so variables and functions in properties resolve the way sampler sees them
+     */
+    public static String getRequestKey(TestElement sampler) {
+        MessageDigest digest = getDigest();
+        update(digest, sampler.propertyIterator());
+        return toHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, PropertyIterator iter) {
+        while (iter.hasNext()) {
+            JMeterProperty prop = iter.next();
+            digest.update(prop.getName().getBytes(StandardCharsets.UTF_8));
+            if (prop instanceof MultiProperty) {
+                digest.update((byte) '{');
+                update(digest, ((MultiProperty) prop).iterator());
+                digest.update((byte) '}');
+            } else {
+                digest.update((byte) '=');
+                digest.update(prop.getStringValue().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) '\n');
+        }
+    }
+
+    /**
+     * @return fresh copy of stored result, null if there is none or it cannot be read
+     */
+    public SampleResult get(TestElement sampler, String requestKey) {
+        File file = getFile(sampler, requestKey);
+        if (!file.isFile() || !isDirSafe()) {
+            return null;
+        }
+
+        try (ObjectInputStream in = new SampleInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return (SampleResult) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.warn("Failed to read replayed sample " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return true if result should be stored for replay
+     */
+    public boolean isStorable(SampleResult result) {
+        return result != null && (storeFailed || result.isSuccessful());
+    }
+
+    /**
+     * Writes into temporary file first, so concurrent threads and readers never see half-written entry
+     */
+    public void put(TestElement sampler, String requestKey, SampleResult result) {
+        if (!isDirSafe()) {
+            return;
+        }
+
+        File file = getFile(sampler, requestKey);
+        File samplerDir = file.getParentFile();
+        if (!samplerDir.isDirectory() && !samplerDir.mkdirs()) {
+            log.warn("Failed to create replay directory " + samplerDir);
+            return;
+        }
+
+        File tmp = null;
+        try {
+            tmp = File.createTempFile("sample", ".tmp", samplerDir);
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeObject(result);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to store replayed sample " + file, e);
+            if (tmp != null && tmp.exists() && !tmp.delete()) {
+                log.debug("Failed to delete " + tmp);
+            }
+        }
+    }
+
+    /**
+     * Forgets all stored results of the sampler, next run sends its requests for real
+     *
+     * @return number of entries removed
+     */
+    public int invalidate(TestElement sampler) {
+        File samplerDir = new File(dir, getSamplerId(sampler));
+        File[] files = samplerDir.listFiles();
+        int count = 0;
+        if (files != null) {
+            for (File file : files) {
+                if (file.delete() && file.getName().endsWith(SUFFIX)) {
+                    count++;
+                }
+            }
+        }
+        if (samplerDir.exists() && !samplerDir.delete()) {
+            log.debug("Failed to delete " + samplerDir);
+        }
+        return count;
+    }
+
+    /**
+     * Creates directory closed to others if there is none. Existing one is refused if it is writable by others
+     * or, where file system tells owners, belongs to another user.
+     */
+    synchronized boolean isDirSafe() {
+        if (safe == null) {
+            safe = checkDir();
+        }
+        return safe;
+    }
+
+    private boolean checkDir() {
+        Path path = dir.toPath();
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        try {
+            if (!Files.exists(path)) {
+                if (posix) {
+                    Files.createDirectories(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+                } else {
+                    Files.createDirectories(path);
+                    if (!dir.setReadable(false, false) || !dir.setReadable(true, true)
+                            || !dir.setWritable(false, false) || !dir.setWritable(true, true)) {
+                        log.warn("Failed to restrict access to " + dir);
+                    }
+                }
+            }
+
+            if (posix) {
+                UserPrincipal owner = Files.getOwner(path);
+                UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+                if (!owner.equals(user)) {
+                    log.warn("Not using replay directory " + dir + " owned by " + owner.getName());
+                    return false;
+                }
+
+                Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path);
+                if (permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                    log.warn("Not using replay directory " + dir + " writable by others");
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("Failed to check replay directory " + dir, e);
+            return false;
+        }
+    }
+
+    private File getFile(TestElement sampler, String requestKey) {
+        return new File(new File(dir, getSamplerId(sampler)), requestKey + SUFFIX);
+    }
+
+    private static boolean isAllowed(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || ALLOWED_TYPES.contains(type.getName()) || SampleResult.class.isAssignableFrom(type)
+                || type == AssertionResult.class || type == SampleSaveConfiguration.class;
+    }
+
+    /**
+     * Refuses every type that is not part of sample result before it gets instantiated
+     */
+    private static class SampleInputStream extends ObjectInputStream {
+        private SampleInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            Class<?> type = super.resolveClass(desc);
+            if (!isAllowed(type)) {
+                throw new InvalidClassException(desc.getName(), "not allowed in replayed sample");
+            }
+            return type;
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+            throw new InvalidClassException("proxy", "not allowed in replayed sample");
+        }
+    }
+
+    private static String hash(String text) {
+        return toHex(getDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JRE has it
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] res = new char[bytes.length * 2];
+        for (int n = 0; n < bytes.length; n++) {
+            res[n * 2] = HEX[(bytes[n] >> 4) & 0xF];
+            res[n * 2 + 1] = HEX[bytes[n] & 0xF];
+        }
+        return new String(res);
+    }
+}
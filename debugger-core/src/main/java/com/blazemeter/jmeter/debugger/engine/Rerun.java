@@ -0,0 +1,116 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import org.apache.jmeter.assertions.Assertion;
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.engine.util.ValueReplacer;
+import org.apache.jmeter.functions.InvalidVariableException;
+import org.apache.jmeter.processor.PostProcessor;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testbeans.TestBean;
+import org.apache.jmeter.testbeans.TestBeanHelper;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextServiceAccessor;
+import org.apache.jmeter.threads.JMeterVariables;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs fresh copy of post-processor or assertion against previous sample result of paused thread.
+ * Copy is made from the element as edited, and it works on scratch copy of thread's variables and result,
+ * so the thread neither moves nor sees what the re-run changed.
+ */
+public class Rerun implements Callable<Rerun> {
+    private final TestElement element;
+    private final JMeterContext context;
+    private final VariablesTracker tracker = new VariablesTracker();
+    private Map<String, Object> changes;
+    private AssertionResult assertionResult;
+
+    private Rerun(TestElement element, JMeterContext context) {
+        this.element = element;
+        this.context = context;
+    }
+
+    /**
+     * Must be called while the thread is paused, its variables are copied right away
+     */
+    public static Rerun of(TestElement edited, JMeterContext paused) {
+        if (!(edited instanceof PostProcessor) && !(edited instanceof Assertion)) {
+            throw new IllegalArgumentException("Only post-processor or assertion can be re-run: " + edited.getName());
+        }
+        SampleResult result = paused.getPreviousResult();
+        if (result == null) {
+            throw new IllegalStateException("No previous sample result to re-run against");
+        }
+
+        TestElement copy = (TestElement) edited.clone();
+        try {
+            new ValueReplacer().replaceValues(copy); // same compilation the engine does on start
+        } catch (InvalidVariableException e) {
+            throw new IllegalArgumentException("Invalid expression in " + edited.getName() + ": " + e.getMessage(), e);
+        }
+        copy.setRunningVersion(true);
+
+        JMeterVariables vars = new JMeterVariables();
+        if (paused.getVariables() != null) {
+            vars.putAll(paused.getVariables());
+        }
+        JMeterContext scratch = JMeterContextServiceAccessor.createContext();
+        scratch.setVariables(vars);
+        scratch.setPreviousResult((SampleResult) result.clone());
+        scratch.setCurrentSampler(paused.getCurrentSampler());
+        scratch.setThread(paused.getThread());
+        scratch.setThreadNum(paused.getThreadNum());
+        scratch.setThreadGroup(paused.getThreadGroup());
+        scratch.setEngine(paused.getEngine());
+
+        Rerun rerun = new Rerun(copy, scratch);
+        rerun.tracker.update(vars);
+        return rerun;
+    }
+
+    /**
+     * Context to run in, JMeter functions of the element look it up from current thread
+     */
+    public JMeterContext getContext() {
+        return context;
+    }
+
+    public TestElement getElement() {
+        return element;
+    }
+
+    /**
+     * Must be called with {@link #getContext()} being current, once
+     */
+    @Override
+    public Rerun call() {
+        if (element instanceof TestBean) {
+            //noinspection deprecation
+            TestBeanHelper.prepare(element);
+        }
+        if (element instanceof PostProcessor) {
+            ((PostProcessor) element).process();
+        } else {
+            assertionResult = ((Assertion) element).getResult(context.getPreviousResult());
+        }
+        changes = tracker.update(context.getVariables());
+        return this;
+    }
+
+    /**
+     * @return variables added or changed by the re-run, removed ones with null value
+     */
+    public Map<String, Object> getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return result of assertion, null for post-processor
+     */
+    public AssertionResult getAssertionResult() {
+        return assertionResult;
+    }
+}
@@ -0,0 +1,12 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.Sampler;
+
+/**
+ * Stepper that may serve sample result instead of running the sampler.
+ */
+public interface SampleReplayer extends StepTrigger {
+    SampleResult sample(Sampler sampler, Entry entry);
+}
@@ -1,6 +1,5 @@
 package com.blazemeter.jmeter.debugger.engine;
 
-import org.apache.jmeter.gui.tree.JMeterTreeNode;
 import org.apache.jorphan.collections.HashTree;
 import org.apache.jorphan.collections.HashTreeTraverser;
 import org.apache.jorphan.collections.ListedHashTree;
@@ -25,12 +24,9 @@ public class SearchClass<T> implements HashTreeTraverser {
 
     @Override
     public void addNode(Object node, HashTree subTree) {
-        if (node instanceof JMeterTreeNode) {
-            Object userObj = ((JMeterTreeNode) node).getUserObject();
-            if (searchClass.isAssignableFrom(userObj.getClass())) {
-                //noinspection unchecked
-                results.add((T) userObj);
-            }
+        if (node != null && searchClass.isAssignableFrom(node.getClass())) {
+            //noinspection unchecked
+            results.add((T) node);
         }
     }
 
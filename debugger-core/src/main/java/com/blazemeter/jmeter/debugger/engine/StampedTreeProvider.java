@@ -0,0 +1,11 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+/**
+ * Tree provider that knows when its plan gets edited, so debugger does not have to fingerprint every property
+ */
+public interface StampedTreeProvider extends TestTreeProvider {
+    /**
+     * @return value that changes whenever element of the plan is added, removed or edited
+     */
+    long getModificationStamp();
+}
@@ -0,0 +1,91 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import com.blazemeter.jmeter.debugger.elements.Wrapper;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterVariables;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * State of debugged thread taken on its own thread at a step, so frontend may show it later from any thread
+ */
+public class StatusSnapshot {
+    private final String threadName;
+    private final JMeterContext context;
+    private final Wrapper element;
+    private final Sampler sampler;
+    private final SampleResult previousResult;
+    private final boolean continuing;
+    private final Map<String, Object> variables;
+
+    public StatusSnapshot(String threadName, JMeterContext context, Wrapper element, Sampler sampler,
+                          SampleResult previousResult, boolean continuing, Map<String, Object> variables) {
+        this.threadName = threadName;
+        this.context = context;
+        this.element = element;
+        this.sampler = sampler;
+        this.previousResult = previousResult;
+        this.continuing = continuing;
+        this.variables = variables;
+    }
+
+    /**
+     * Copies variables by reference, values themselves are not converted
+     */
+    public static StatusSnapshot of(DebuggedThread thread) {
+        JMeterContext context = thread.getContext();
+        JMeterVariables vars = context.getVariables();
+        Map<String, Object> copy;
+        if (vars == null) {
+            copy = Collections.emptyMap();
+        } else {
+            Set<Map.Entry<String, Object>> entries = vars.entrySet();
+            copy = new HashMap<>(entries.size() * 4 / 3 + 1);
+            for (Map.Entry<String, Object> var : entries) {
+                copy.put(var.getKey(), var.getValue());
+            }
+            copy = Collections.unmodifiableMap(copy);
+        }
+        return new StatusSnapshot(thread.getName(), context, thread.getCurrentElement(), context.getCurrentSampler(),
+                context.getPreviousResult(), thread.isContinuing(), copy);
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * @return live context of the thread, for evaluating expressions while it is frozen
+     */
+    public JMeterContext getContext() {
+        return context;
+    }
+
+    public Wrapper getElement() {
+        return element;
+    }
+
+    public Sampler getSampler() {
+        return sampler;
+    }
+
+    public SampleResult getPreviousResult() {
+        return previousResult;
+    }
+
+    public boolean isContinuing() {
+        return continuing;
+    }
+
+    /**
+     * @return read-only variables as of the step
+     */
+    public Map<String, Object> getVariables() {
+        return variables;
+    }
+}
@@ -0,0 +1,48 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-waiter handshake between the debugged thread and the controls.
+ * A token released while nobody waits is kept until the next {@link #await()},
+ * so a quick "Step Over" cannot get lost.
+ */
+public class StepGate {
+    public enum Token {
+        STEP, CONTINUE, STOP
+    }
+
+    private final AtomicReference<Token> pending = new AtomicReference<>();
+    private volatile Thread waiter;
+
+    public Token await() throws InterruptedException {
+        waiter = Thread.currentThread();
+        try {
+            Token token;
+            while ((token = pending.getAndSet(null)) == null) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return token;
+        } finally {
+            waiter = null;
+        }
+    }
+
+    public void release(Token token) {
+        pending.set(token);
+        LockSupport.unpark(waiter);
+    }
+
+    public void reset() {
+        pending.compareAndSet(Token.STEP, null);
+        pending.compareAndSet(Token.CONTINUE, null);
+    }
+
+    public boolean isWaiting() {
+        return waiter != null;
+    }
+}
@@ -0,0 +1,159 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import com.blazemeter.jmeter.debugger.elements.Wrapper;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.Sampler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Steps one debugged thread paused on: full variables checkpoint every few steps and per-step changes in between.
+ * Memory is estimated per entry and oldest checkpoints are evicted with their steps once over budget;
+ * checkpoint is taken early when steps since the last one outgrow the budget, so only the latest step may exceed it.
+ * Written by the debugged thread, read by controls while it is frozen.
+ */
+public class StepHistory {
+    private static final int ENTRY_SIZE = 64;
+    private static final int STEP_SIZE = 48;
+    private static final int RESULT_SIZE = 256;
+
+    private final long budget;
+    private final int checkpointInterval;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long used;
+    private int size;
+    private SampleResult lastResult;
+
+    public StepHistory(long budget, int checkpointInterval) {
+        this.budget = budget;
+        this.checkpointInterval = Math.max(1, checkpointInterval);
+    }
+
+    /**
+     * @param changes  variables changed since previous added step, as reported by {@link VariablesTracker#update}
+     * @param tracker  source of full checkpoint when it's time to take one
+     */
+    public synchronized void add(Wrapper element, Sampler sampler, SampleResult previousResult, Map<String, Object> changes, VariablesTracker tracker) {
+        if (budget <= 0) {
+            return;
+        }
+
+        Segment segment = segments.peekLast();
+        long bytes = STEP_SIZE + estimate(changes) + getResultSize(previousResult);
+        if (segment == null || segment.steps.size() >= checkpointInterval || segment.bytes + bytes > budget) {
+            // early checkpoint when open segment alone outgrows the budget, so older one can be evicted
+            Map<String, Object> checkpoint = tracker.snapshot();
+            segment = new Segment(checkpoint, estimate(checkpoint));
+            segments.addLast(segment);
+            used += segment.bytes;
+            changes = Collections.emptyMap(); // already in checkpoint
+            lastResult = null; // count result again, older segment holding it may be evicted
+            bytes = STEP_SIZE + getResultSize(previousResult);
+        }
+        lastResult = previousResult;
+
+        segment.steps.add(new Step(element, sampler, previousResult, changes));
+        segment.bytes += bytes;
+        used += bytes;
+        size++;
+
+        while (used > budget && segments.size() > 1) {
+            Segment oldest = segments.removeFirst();
+            used -= oldest.bytes;
+            size -= oldest.steps.size();
+        }
+    }
+
+    /**
+     * @return number of steps available, including current one
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return memory taken by history, estimated
+     */
+    public synchronized long getUsed() {
+        return used;
+    }
+
+    /**
+     * @return state at given number of steps before current one, null if it is evicted or never recorded
+     */
+    public synchronized HistoryFrame get(int stepsBack) {
+        if (stepsBack < 0 || stepsBack >= size) {
+            return null;
+        }
+
+        int index = size - 1 - stepsBack;
+        for (Segment segment : segments) {
+            if (index >= segment.steps.size()) {
+                index -= segment.steps.size();
+                continue;
+            }
+
+            Map<String, Object> vars = new HashMap<>(segment.checkpoint);
+            for (int i = 1; i <= index; i++) {
+                apply(vars, segment.steps.get(i).changes);
+            }
+            Step step = segment.steps.get(index);
+            return new HistoryFrame(stepsBack, step.element, step.sampler, step.previousResult, Collections.unmodifiableMap(vars));
+        }
+        return null;
+    }
+
+    private static void apply(Map<String, Object> vars, Map<String, Object> changes) {
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                vars.remove(change.getKey());
+            } else {
+                vars.put(change.getKey(), change.getValue());
+            }
+        }
+    }
+
+    private long getResultSize(SampleResult result) {
+        return result == null || result == lastResult ? 0 : RESULT_SIZE + result.getBytesAsLong();
+    }
+
+    private static long estimate(Map<String, Object> vars) {
+        long res = 0;
+        for (Map.Entry<String, Object> var : vars.entrySet()) {
+            Object value = var.getValue();
+            res += ENTRY_SIZE + 2 * var.getKey().length() + (value instanceof String ? 2 * ((String) value).length() : 16);
+        }
+        return res;
+    }
+
+    private static class Segment {
+        private final Map<String, Object> checkpoint;
+        private final List<Step> steps = new ArrayList<>();
+        private long bytes;
+
+        private Segment(Map<String, Object> checkpoint, long bytes) {
+            this.checkpoint = checkpoint;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class Step {
+        private final Wrapper element;
+        private final Sampler sampler;
+        private final SampleResult previousResult;
+        private final Map<String, Object> changes;
+
+        private Step(Wrapper element, Sampler sampler, SampleResult previousResult, Map<String, Object> changes) {
+            this.element = element;
+            this.sampler = sampler;
+            this.previousResult = previousResult;
+            this.changes = changes;
+        }
+    }
+}
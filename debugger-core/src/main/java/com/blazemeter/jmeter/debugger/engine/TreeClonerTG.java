@@ -1,17 +1,15 @@
 package com.blazemeter.jmeter.debugger.engine;
 
 import com.blazemeter.jmeter.debugger.elements.*;
+import org.apache.jmeter.JMeter;
 import org.apache.jmeter.assertions.Assertion;
 import org.apache.jmeter.control.*;
-import org.apache.jmeter.gui.tree.JMeterTreeNode;
 import org.apache.jmeter.processor.PostProcessor;
 import org.apache.jmeter.processor.PreProcessor;
 import org.apache.jmeter.samplers.SampleListener;
 import org.apache.jmeter.samplers.Sampler;
 import org.apache.jmeter.testelement.TestElement;
-import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jmeter.testelement.property.NullProperty;
-import org.apache.jmeter.testelement.property.PropertyIterator;
 import org.apache.jmeter.threads.AbstractThreadGroup;
 import org.apache.jmeter.timers.Timer;
 import org.apache.jorphan.collections.HashTree;
@@ -22,64 +20,86 @@ import org.slf4j.Logger;
 
 import java.util.LinkedList;
 
+/**
+ * Prepares runnable debug tree of single thread group in one pass:
+ * clones and wraps elements, drops disabled ones and other thread groups.
+ * Expects plain TestElement tree, GUI frontend converts its tree nodes before passing them here.
+ * With instrumentation given, wraps only elements that hold a breakpoint and their descendants.
+ */
 public class TreeClonerTG implements HashTreeTraverser {
     private static final Logger log = LoggerFactory.getLogger(TreeClonerTG.class);
+    // names, not class literals: GUI classes live in debugger-gui module
+    private static final String CONTROLLER_GUI = "com.blazemeter.jmeter.debugger.elements.ControllerDebugGui";
+    private static final String THREAD_GROUP_GUI = "com.blazemeter.jmeter.debugger.elements.DebuggingThreadGroupGui";
     private AbstractThreadGroup onlyTG;
 
     private final ListedHashTree newTree = new ListedHashTree();
-    private final LinkedList<Object> stack = new LinkedList<>();
-    private boolean ignoring = false;
+    private final LinkedList<HashTree> subTrees = new LinkedList<>();
+    private int ignoredDepth = 0;
+    private boolean hasReplaceable = false;
+    private final Instrumentation instrumentation;
+    private int instrumentedDepth = 0;
 
     public TreeClonerTG(AbstractThreadGroup tg) {
+        this(tg, null);
+    }
+
+    public TreeClonerTG(AbstractThreadGroup tg, Instrumentation instrumentation) {
         this.onlyTG = tg;
+        this.instrumentation = instrumentation;
     }
 
     @Override
     public final void addNode(Object node, HashTree subTree) {
-        if (!ignoring && isIgnored(node)) {
-            ignoring = true;
+        if (ignoredDepth > 0 || isIgnored(node)) {
+            ignoredDepth++;
+            return;
         }
 
-        if (!ignoring) {
-            node = addNodeToTree(node);
+        TestElement orig = getOriginalObject(node);
+        if (instrumentedDepth > 0 || Debugger.isBreakpoint(orig)) {
+            instrumentedDepth++;
         }
-        stack.addLast(node);
+
+        TestElement altered = getClonedElement(orig);
+        HashTree parent = subTrees.isEmpty() ? newTree : subTrees.getLast();
+        subTrees.addLast(parent.add(altered));
     }
 
     private boolean isIgnored(Object node) {
-        if (node instanceof JMeterTreeNode) {
-            Object te = ((JMeterTreeNode) node).getUserObject();
-            return te instanceof AbstractThreadGroup && te != onlyTG;
+        TestElement te = (TestElement) node;
+        if (!te.isEnabled()) {
+            return true;
         }
-        return false;
+        return te instanceof AbstractThreadGroup && te != onlyTG && getOriginalObject(te) != onlyTG;
     }
 
-    protected Object addNodeToTree(Object node) {
-        if (node instanceof JMeterTreeNode) {
-            node = getClonedNode((JMeterTreeNode) node);
-            newTree.add(stack, node);
-        } else {
-            throw new IllegalArgumentException();
+    private TestElement getClonedElement(TestElement orig) {
+        TestElement cloned = (TestElement) orig.clone();
+        boolean wrap = instrumentation == null || instrumentedDepth > 0 || cloned instanceof AbstractThreadGroup;
+        TestElement altered = wrap ? instrument(cloned, orig) : cloned;
+        if (altered instanceof ReplaceableController) {
+            hasReplaceable = true;
+        }
+
+        if (altered instanceof DebuggingThreadGroup) {
+            ((DebuggingThreadGroup) altered).setInstrumentation(instrumentation);
+        } else if (instrumentation != null && !(altered instanceof OriginalLink)) {
+            instrumentation.link(altered, orig);
         }
-        return node;
+        return altered;
     }
 
-    private JMeterTreeNode getClonedNode(JMeterTreeNode node) {
-        TestElement orig = getOriginalObject(node);
-        TestElement cloned = (TestElement) orig.clone();
+    /**
+     * @return debug wrapper around cloned element, or the element itself if it can't be wrapped
+     */
+    static TestElement instrument(TestElement cloned, TestElement orig) {
         TestElement altered = getAlteredElement(cloned);
 
         if (altered instanceof Wrapper) {
             Wrapper wrp = (Wrapper) altered;
             //noinspection unchecked
-            wrp.setWrappedElement(cloned);
-            PropertyIterator iter = cloned.propertyIterator();
-            while (iter.hasNext()) {
-                JMeterProperty prop = iter.next();
-                if (!prop.getName().startsWith("TestElement")) {
-                    wrp.setProperty(prop.clone());
-                }
-            }
+            wrp.setWrappedElement(cloned); // wrapper properties are a view of wrapped ones
         }
 
         if (altered instanceof OriginalLink) {
@@ -90,17 +110,15 @@ public class TreeClonerTG implements HashTreeTraverser {
             log.debug("Not linking original: " + altered);
         }
 
-        JMeterTreeNode res = new JMeterTreeNode();
         altered.setName(cloned.getName());
         altered.setEnabled(cloned.isEnabled());
         if (altered.getProperty(TestElement.GUI_CLASS) instanceof NullProperty) {
-            altered.setProperty(TestElement.GUI_CLASS, ControllerDebugGui.class.getCanonicalName());
+            altered.setProperty(TestElement.GUI_CLASS, CONTROLLER_GUI);
         }
-        res.setUserObject(altered);
-        return res;
+        return altered;
     }
 
-    private TestElement getAlteredElement(TestElement cloned) {
+    private static TestElement getAlteredElement(TestElement cloned) {
         boolean isWrappable = !(cloned instanceof TransactionController) && !(cloned instanceof TestFragmentController) && !(cloned instanceof ReplaceableController);
 
         TestElement userObject = cloned;
@@ -108,7 +126,7 @@ public class TreeClonerTG implements HashTreeTraverser {
             log.debug("Forcing unwrapped: " + cloned);
         } else if (cloned instanceof AbstractThreadGroup) {
             userObject = new DebuggingThreadGroup();
-            userObject.setProperty(TestElement.GUI_CLASS, DebuggingThreadGroupGui.class.getCanonicalName());
+            userObject.setProperty(TestElement.GUI_CLASS, THREAD_GROUP_GUI);
         } else if (cloned instanceof Controller) {
             userObject = getController(cloned);
         } else if (cloned instanceof PreProcessor) {
@@ -129,17 +147,16 @@ public class TreeClonerTG implements HashTreeTraverser {
         return userObject;
     }
 
-    private TestElement getOriginalObject(JMeterTreeNode node) {
-        Object obj = (node).getUserObject();
-        if (obj instanceof OriginalLink) {
-            Object original = ((OriginalLink) obj).getOriginal();
+    private TestElement getOriginalObject(Object node) {
+        if (node instanceof OriginalLink) {
+            Object original = ((OriginalLink) node).getOriginal();
             return (TestElement) original;
         } else {
-            return (TestElement) obj;
+            return (TestElement) node;
         }
     }
 
-    private TestElement getController(TestElement cloned) {
+    private static TestElement getController(TestElement cloned) {
         if (cloned instanceof GenericController) {
             if (cloned instanceof ReplaceableController) {     // TODO: solve replaceable problem
                 log.warn("Not supported!: " + cloned);
@@ -157,17 +174,28 @@ public class TreeClonerTG implements HashTreeTraverser {
 
     @Override
     public void subtractNode() {
-        if (isIgnored(stack.getLast())) {
-            ignoring = false;
+        if (ignoredDepth > 0) {
+            ignoredDepth--;
+        } else {
+            subTrees.removeLast();
+            if (instrumentedDepth > 0) {
+                instrumentedDepth--;
+            }
         }
-        stack.removeLast();
     }
 
     @Override
     public void processPath() {
     }
 
+    /**
+     * @return tree of wrapped elements ready to run
+     */
     public HashTree getClonedTree() {
+        if (hasReplaceable) {
+            hasReplaceable = false;
+            JMeter.convertSubTree(newTree); // lets JMeter put replacement subtrees in place
+        }
         return newTree;
     }
 }
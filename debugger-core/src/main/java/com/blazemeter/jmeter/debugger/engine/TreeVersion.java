@@ -0,0 +1,51 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.property.JMeterProperty;
+import org.apache.jmeter.testelement.property.PropertyIterator;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.HashTreeTraverser;
+
+/**
+ * Fingerprint of test plan: element identities, nesting, enabled state and properties.
+ * Walks every property, so it is used only for tree providers that do not keep modification stamp.
+ * Breakpoint properties are left out, so toggling breakpoints keeps the version.
+ */
+public class TreeVersion implements HashTreeTraverser {
+    private long version = 17;
+
+    public static long of(HashTree tree) {
+        TreeVersion traverser = new TreeVersion();
+        tree.traverse(traverser);
+        return traverser.version;
+    }
+
+    @Override
+    public void addNode(Object node, HashTree subTree) {
+        mix(System.identityHashCode(node));
+        if (node instanceof TestElement) {
+            TestElement te = (TestElement) node;
+            mix(te.isEnabled() ? 1 : 2);
+            PropertyIterator iter = te.propertyIterator();
+            while (iter.hasNext()) {
+                JMeterProperty prop = iter.next();
+                if (!prop.getName().startsWith(Breakpoint.ENABLED)) {
+                    mix(prop.hashCode());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void subtractNode() {
+        mix(-1); // closes the level, so nesting counts
+    }
+
+    @Override
+    public void processPath() {
+    }
+
+    private void mix(int value) {
+        version = version * 31 + value;
+    }
+}
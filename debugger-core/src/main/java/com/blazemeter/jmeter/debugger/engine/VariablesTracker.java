@@ -0,0 +1,83 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import org.apache.jmeter.threads.JMeterVariables;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Follows variables of one thread from step to step, telling what changed since previous step.
+ * Values are kept by reference, so the cost is one map lookup per variable and nothing is converted to string.
+ */
+public class VariablesTracker {
+    private final Map<String, Slot> last = new HashMap<>();
+    private int generation;
+
+    /**
+     * @return variables added or changed since previous call, removed ones with null value
+     */
+    public Map<String, Object> update(JMeterVariables vars) {
+        return update(vars.entrySet());
+    }
+
+    /**
+     * @see #update(JMeterVariables)
+     */
+    public Map<String, Object> update(Set<Map.Entry<String, Object>> vars) {
+        generation++;
+        Map<String, Object> changes = null;
+        for (Map.Entry<String, Object> var : vars) {
+            Object value = var.getValue();
+            Slot slot = last.get(var.getKey());
+            if (slot == null) {
+                slot = new Slot();
+                last.put(var.getKey(), slot);
+                changes = put(changes, var.getKey(), value);
+            } else if (slot.value == null ? value != null : !slot.value.equals(value)) {
+                changes = put(changes, var.getKey(), value);
+            }
+            slot.value = value;
+            slot.generation = generation;
+        }
+
+        if (vars.size() < last.size()) {
+            Iterator<Map.Entry<String, Slot>> slots = last.entrySet().iterator();
+            while (slots.hasNext()) {
+                Map.Entry<String, Slot> slot = slots.next();
+                if (slot.getValue().generation != generation) {
+                    slots.remove();
+                    changes = put(changes, slot.getKey(), null);
+                }
+            }
+        }
+        return changes == null ? Collections.<String, Object>emptyMap() : changes;
+    }
+
+    private static Map<String, Object> put(Map<String, Object> changes, String name, Object value) {
+        if (changes == null) {
+            changes = new LinkedHashMap<>();
+        }
+        changes.put(name, value);
+        return changes;
+    }
+
+    /**
+     * @return copy of variables as of last update
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> res = new HashMap<>(last.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Slot> slot : last.entrySet()) {
+            res.put(slot.getKey(), slot.getValue().value);
+        }
+        return res;
+    }
+
+    private static class Slot {
+        private Object value;
+        private int generation;
+    }
+}
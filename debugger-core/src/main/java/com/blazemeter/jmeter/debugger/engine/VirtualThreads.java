@@ -0,0 +1,76 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates debugged threads as virtual threads when JVM has them, platform threads otherwise.
+ * Looked up via reflection to keep the plugin runnable on old JVMs.
+ */
+public class VirtualThreads {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final Method ofVirtual;
+    private static final Method name;
+    private static final Method unstarted;
+    private static final Method isVirtual;
+
+    static {
+        Method ofVirtualM = null;
+        Method nameM = null;
+        Method unstartedM = null;
+        Method isVirtualM = null;
+        try {
+            ofVirtualM = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = ofVirtualM.getReturnType();
+            nameM = builder.getMethod("name", String.class);
+            unstartedM = builder.getMethod("unstarted", Runnable.class);
+            isVirtualM = Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            log.debug("Virtual threads are not available, using platform threads");
+            ofVirtualM = null;
+        }
+        ofVirtual = ofVirtualM;
+        name = nameM;
+        unstarted = unstartedM;
+        isVirtual = isVirtualM;
+    }
+
+    public static boolean isSupported() {
+        return ofVirtual != null;
+    }
+
+    public static boolean isEnabled() {
+        return isSupported() && JMeterUtils.getPropDefault("debugger.virtual.threads", true);
+    }
+
+    /**
+     * @return unstarted thread
+     */
+    public static Thread newThread(Runnable target, String threadName) {
+        if (isEnabled()) {
+            try {
+                Object builder = name.invoke(ofVirtual.invoke(null), threadName);
+                return (Thread) unstarted.invoke(builder, target);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Failed to create virtual thread, falling back to platform one", e);
+            }
+        }
+        return new Thread(target, threadName);
+    }
+
+    public static boolean isVirtual(Thread thread) {
+        if (isVirtual == null) {
+            return false;
+        }
+
+        try {
+            return (Boolean) isVirtual.invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import org.apache.jmeter.engine.util.CompoundVariable;
+import org.apache.jmeter.functions.InvalidVariableException;
+import org.apache.jmeter.threads.JMeterContext;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Watch expression compiled once. Plain expression depends only on variables written in it as ${name};
+ * expression calling any function may read variables by computed name, scripts or clock,
+ * so it is treated as changed at every step.
+ */
+public class Watch {
+    private static final Pattern VARIABLE = Pattern.compile("\\$\\{([^${}()]+)}");
+    private static final String FUNCTION = "${__";
+
+    private final String expression;
+    private final CompoundVariable compiled;
+    private final String parseError;
+    private final Set<String> variables;
+    private final boolean volatileResult;
+    private Map<String, Object> seen; // values of variables as of last evaluation, null if never evaluated
+    private String result = "";
+
+    public Watch(String expression) {
+        this.expression = expression;
+        CompoundVariable function = new CompoundVariable();
+        String error = null;
+        try {
+            function.setParameters(expression);
+        } catch (InvalidVariableException e) {
+            function = null;
+            error = e.toString();
+        }
+        compiled = function;
+        parseError = error;
+
+        Set<String> names = new LinkedHashSet<>();
+        Matcher matcher = VARIABLE.matcher(expression);
+        while (matcher.find()) {
+            if (!matcher.group(1).startsWith("__")) {
+                names.add(matcher.group(1));
+            }
+        }
+        variables = Collections.unmodifiableSet(names);
+        volatileResult = expression.contains(FUNCTION);
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return names of variables written in the expression, the whole dependency unless it calls functions
+     */
+    public Set<String> getVariables() {
+        return variables;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Compares only variables this watch depends on, so check costs lookup per mentioned variable;
+     * always true for expression calling functions
+     */
+    public boolean isStale(Map<String, Object> vars) {
+        if (seen == null || volatileResult) {
+            return true;
+        }
+        for (String name : variables) {
+            Object value = vars.get(name);
+            Object old = seen.get(name);
+            if (value == null ? old != null : !value.equals(old)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return values of depended variables, to pass to {@link #setResult} with the evaluation result
+     */
+    public Map<String, Object> capture(Map<String, Object> vars) {
+        Map<String, Object> res = new HashMap<>(variables.size() * 4 / 3 + 1);
+        for (String name : variables) {
+            res.put(name, vars.get(name));
+        }
+        return res;
+    }
+
+    /**
+     * Must be called on thread having debugged thread's context
+     */
+    public String evaluate(JMeterContext context) {
+        if (compiled == null) {
+            return parseError;
+        }
+        try {
+            return compiled.execute(context.getPreviousResult(), context.getCurrentSampler());
+        } catch (RuntimeException e) {
+            return e.toString();
+        }
+    }
+
+    /**
+     * @return true if result differs from previous one
+     */
+    public boolean setResult(String result, Map<String, Object> captured) {
+        seen = captured;
+        result = result == null ? "" : result;
+        if (result.equals(this.result)) {
+            return false;
+        }
+        this.result = result;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,104 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import org.apache.jmeter.threads.JMeterContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Watches re-evaluated at pauses: only stale ones go into a batch, which runs off the UI thread
+ * and is applied back in one go. Not thread-safe, list itself is used by frontend thread only.
+ */
+public class WatchList {
+    private final List<Watch> watches = new ArrayList<>();
+
+    public Watch add(String expression) {
+        Watch watch = new Watch(expression);
+        watches.add(watch);
+        return watch;
+    }
+
+    public void remove(int index) {
+        watches.remove(index);
+    }
+
+    public Watch get(int index) {
+        return watches.get(index);
+    }
+
+    public int size() {
+        return watches.size();
+    }
+
+    public int indexOf(Watch watch) {
+        return watches.indexOf(watch);
+    }
+
+    /**
+     * @return batch of watches whose variables changed since their last evaluation, null if there are none
+     */
+    public Batch prepare(JMeterContext context, Map<String, Object> vars) {
+        List<Watch> stale = new ArrayList<>();
+        List<Map<String, Object>> captured = new ArrayList<>();
+        for (Watch watch : watches) {
+            if (watch.isStale(vars)) {
+                stale.add(watch);
+                captured.add(watch.capture(vars));
+            }
+        }
+        return stale.isEmpty() ? null : new Batch(context, stale, captured);
+    }
+
+    public static class Batch implements Callable<List<String>> {
+        private final JMeterContext context;
+        private final List<Watch> watches;
+        private final List<Map<String, Object>> captured;
+
+        private Batch(JMeterContext context, List<Watch> watches, List<Map<String, Object>> captured) {
+            this.context = context;
+            this.watches = watches;
+            this.captured = captured;
+        }
+
+        public JMeterContext getContext() {
+            return context;
+        }
+
+        public List<Watch> getWatches() {
+            return Collections.unmodifiableList(watches);
+        }
+
+        /**
+         * Evaluates watches of the batch in order, on thread having debugged thread's context
+         */
+        @Override
+        public List<String> call() {
+            List<String> results = new ArrayList<>(watches.size());
+            for (Watch watch : watches) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                results.add(watch.evaluate(context));
+            }
+            return results;
+        }
+
+        /**
+         * @return watches whose result changed
+         */
+        public Set<Watch> apply(List<String> results) {
+            Set<Watch> changed = Collections.newSetFromMap(new IdentityHashMap<Watch, Boolean>());
+            for (int n = 0; n < results.size(); n++) {
+                if (watches.get(n).setResult(results.get(n), captured.get(n))) {
+                    changed.add(watches.get(n));
+                }
+            }
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.blazemeter.jmeter.debugger.headless;
+
+import org.apache.jmeter.save.SaveService;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.HashTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Debugger for machines with no display. Loads JMX and serves line-delimited JSON on loopback TCP port:
+ * each request line like <code>{"id":1,"cmd":"step"}</code> gets response line with the same id,
+ * events like <code>{"event":"frozenAt",...}</code> are pushed to every connected client.
+ * Other local users can reach the port too, so first line of each connection must be
+ * <code>{"cmd":"auth","token":"..."}</code> with the random token generated on start, otherwise it is closed.
+ */
+public class HeadlessDebugger {
+    private static final Logger log = LoggerFactory.getLogger(HeadlessDebugger.class);
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService commands;
+    private final HeadlessFrontend frontend;
+    private final String token = generateToken();
+    private volatile boolean running = true;
+
+    /**
+     * @param port 0 to pick free one
+     */
+    public HeadlessDebugger(final HashTree testTree, int port) throws IOException, InterruptedException {
+        commands = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "debugger-commands");
+            }
+        });
+        frontend = call(new Callable<HeadlessFrontend>() {
+            @Override
+            public HeadlessFrontend call() {
+                return new HeadlessFrontend(testTree);
+            }
+        });
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public HeadlessFrontend getFrontend() {
+        return frontend;
+    }
+
+    /**
+     * @return secret clients must send in "auth" command before anything else
+     */
+    public String getToken() {
+        return token;
+    }
+
+    private static String generateToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder res = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            res.append(String.format("%02x", b));
+        }
+        return res.toString();
+    }
+
+    /**
+     * Writes token into file readable by owner only, for scripts started by the same user
+     */
+    public void writeToken(File file) throws IOException {
+        Path path = file.toPath();
+        Files.deleteIfExists(path);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(path);
+            if (!file.setReadable(false, false) || !file.setReadable(true, true)) {
+                log.warn("Failed to restrict access to " + file);
+            }
+        }
+        Files.write(path, Collections.singletonList(token), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Accepts clients until "quit" command comes
+     */
+    public void serve() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread thread = new Thread(new Client(socket), "debugger-client-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Failed to accept client", e);
+                }
+            }
+        }
+    }
+
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        try {
+            call(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    if (!frontend.getDebugger().getThreads().isEmpty()) {
+                        frontend.getDebugger().stop();
+                    }
+                    return null;
+                }
+            });
+        } catch (InterruptedException e) {
+            log.debug("Interrupted while stopping", e);
+        }
+        commands.shutdown();
+
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.debug("Failed to close server socket", e);
+        }
+    }
+
+    private <T> T call(Callable<T> task) throws InterruptedException {
+        try {
+            return commands.submit(task).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * @return response to the first line of connection, "ok" only for "auth" command with right token
+     */
+    private Map<String, Object> authenticate(String line) {
+        Object request = null;
+        try {
+            request = Json.parse(line);
+        } catch (IllegalArgumentException e) {
+            log.debug("Malformed auth request", e);
+        }
+
+        Map<?, ?> map = request instanceof Map ? (Map<?, ?>) request : Collections.emptyMap();
+        Object given = map.get("token");
+        boolean ok = "auth".equals(map.get("cmd")) && given instanceof String
+                && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), ((String) given).getBytes(StandardCharsets.UTF_8));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", map.get("id"));
+        response.put("ok", ok);
+        if (!ok) {
+            response.put("error", "Authentication required");
+        }
+        return response;
+    }
+
+    private String handleLine(String line) throws InterruptedException {
+        final Map<String, Object> request;
+        try {
+            Object parsed = Json.parse(line);
+            if (!(parsed instanceof Map)) {
+                throw new IllegalArgumentException("Object expected");
+            }
+            //noinspection unchecked
+            request = (Map<String, Object>) parsed;
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("id", null);
+            response.put("ok", false);
+            response.put("error", "Malformed request: " + e.getMessage());
+            return Json.format(response);
+        }
+
+        if ("quit".equals(request.get("cmd"))) {
+            shutdown();
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("id", request.get("id"));
+            response.put("ok", true);
+            return Json.format(response);
+        }
+
+        try {
+            return Json.format(call(new Callable<Map<String, Object>>() {
+                @Override
+                public Map<String, Object> call() {
+                    return frontend.handle(request);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            // another client has sent quit, its connection stays open until closed by the client
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("id", request.get("id"));
+            response.put("ok", false);
+            response.put("error", "Debugger is shut down");
+            return Json.format(response);
+        }
+    }
+
+    private class Client implements Runnable, HeadlessFrontend.EventListener {
+        private final Socket socket;
+        private Writer out;
+
+        private Client(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            try {
+                out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                String line = in.readLine();
+                if (line == null) {
+                    return;
+                }
+                Map<String, Object> auth = authenticate(line);
+                send(Json.format(auth));
+                if (!Boolean.TRUE.equals(auth.get("ok"))) {
+                    log.warn("Rejected client from port " + socket.getPort() + ": no valid token");
+                    return;
+                }
+
+                frontend.addListener(this);
+                while ((line = in.readLine()) != null) {
+                    if (!line.trim().isEmpty()) {
+                        send(handleLine(line));
+                    }
+                }
+            } catch (SocketException e) {
+                log.debug("Client disconnected", e);
+            } catch (IOException | InterruptedException e) {
+                log.warn("Client failed", e);
+            } finally {
+                frontend.removeListener(this);
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close client socket", e);
+                }
+            }
+        }
+
+        @Override
+        public void onEvent(Map<String, Object> event) {
+            try {
+                send(Json.format(event));
+            } catch (IOException e) {
+                log.debug("Failed to send event", e);
+            }
+        }
+
+        private synchronized void send(String line) throws IOException {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+        }
+    }
+
+    /**
+     * Usage: HeadlessDebugger [-p port] [-t token_file] [-H jmeter_home] [-Jname=value]... plan.jmx
+     */
+    public static void main(String[] args) throws Exception {
+        int port = 0;
+        File tokenFile = null;
+        String home = System.getProperty("jmeter.home");
+        Map<String, String> props = new LinkedHashMap<>();
+        String jmx = null;
+        for (int n = 0; n < args.length; n++) {
+            String arg = args[n];
+            if (arg.equals("-p") && n + 1 < args.length) {
+                port = Integer.parseInt(args[++n]);
+            } else if (arg.equals("-t") && n + 1 < args.length) {
+                tokenFile = new File(args[++n]);
+            } else if (arg.equals("-H") && n + 1 < args.length) {
+                home = args[++n];
+            } else if (arg.startsWith("-J") && arg.contains("=")) {
+                props.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                jmx = arg;
+            }
+        }
+
+        if (jmx == null || home == null) {
+            System.err.println("Usage: HeadlessDebugger [-p port] [-t token_file] [-H jmeter_home] [-Jname=value]... plan.jmx");
+            System.exit(1);
+        }
+
+        JMeterUtils.setJMeterHome(home);
+        JMeterUtils.loadJMeterProperties(new File(home, "bin/jmeter.properties").getAbsolutePath());
+        JMeterUtils.initLocale();
+        for (Map.Entry<String, String> prop : props.entrySet()) {
+            JMeterUtils.setProperty(prop.getKey(), prop.getValue());
+        }
+
+        HeadlessDebugger server = new HeadlessDebugger(SaveService.loadTree(new File(jmx)), port);
+        if (tokenFile == null) {
+            System.out.println("Token: " + server.getToken());
+        } else {
+            server.writeToken(tokenFile);
+            System.out.println("Token written to " + tokenFile.getAbsolutePath());
+        }
+        System.out.println("Listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort());
+        System.out.flush();
+        server.serve();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,428 @@
+package com.blazemeter.jmeter.debugger.headless;
+
+import com.blazemeter.jmeter.debugger.elements.OriginalLink;
+import com.blazemeter.jmeter.debugger.elements.Wrapper;
+import com.blazemeter.jmeter.debugger.engine.DebuggedThread;
+import com.blazemeter.jmeter.debugger.engine.Debugger;
+import com.blazemeter.jmeter.debugger.engine.DebuggerFrontend;
+import com.blazemeter.jmeter.debugger.engine.ExpressionEvaluator;
+import com.blazemeter.jmeter.debugger.engine.HistoryFrame;
+import com.blazemeter.jmeter.debugger.engine.Rerun;
+import com.blazemeter.jmeter.debugger.engine.StatusSnapshot;
+import com.blazemeter.jmeter.debugger.engine.StampedTreeProvider;
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.HashTreeTraverser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Debugger frontend with no GUI: test plan comes from loaded JMX tree,
+ * commands and events are JSON maps that {@link HeadlessDebugger} passes over socket.
+ * Commands must be handled from one thread, its JMeter context becomes the context of first debugged thread.
+ * Evaluations and re-runs go through {@link ExpressionEvaluator} like in GUI, so endless script fails the command
+ * after timeout instead of hanging the server.
+ */
+public class HeadlessFrontend implements DebuggerFrontend, StampedTreeProvider {
+    private static final Logger log = LoggerFactory.getLogger(HeadlessFrontend.class);
+
+    private final HashTree testTree;
+    private final List<TestElement> elements = new ArrayList<>();
+    private final Map<TestElement, Integer> ids = new IdentityHashMap<>();
+    private final Map<TestElement, Integer> depths = new IdentityHashMap<>();
+    private final List<EventListener> listeners = new CopyOnWriteArrayList<>();
+    private final Debugger debugger;
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+    public HeadlessFrontend(HashTree testTree) {
+        this.testTree = testTree;
+        testTree.traverse(new HashTreeTraverser() {
+            private int depth = 0;
+
+            @Override
+            public void addNode(Object node, HashTree subTree) {
+                TestElement te = (TestElement) node;
+                ids.put(te, elements.size());
+                depths.put(te, depth++);
+                elements.add(te);
+            }
+
+            @Override
+            public void subtractNode() {
+                depth--;
+            }
+
+            @Override
+            public void processPath() {
+            }
+        });
+
+        JMeterContext context = JMeterContextService.getContext();
+        if (context.getVariables() == null) {
+            context.setVariables(new JMeterVariables());
+        }
+        debugger = new Debugger(this, this);
+    }
+
+    @Override
+    public HashTree getTestTree() {
+        return testTree;
+    }
+
+    /**
+     * Loaded plan is never edited, only its breakpoints are, and those are versioned separately
+     */
+    @Override
+    public long getModificationStamp() {
+        return 0;
+    }
+
+    public Debugger getDebugger() {
+        return debugger;
+    }
+
+    public void addListener(EventListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(EventListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return response with the same "id" as request, "ok" flag and either "result" or "error"
+     */
+    public Map<String, Object> handle(Map<String, Object> request) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", request.get("id"));
+        try {
+            Object result = execute(String.valueOf(request.get("cmd")), request);
+            response.put("ok", true);
+            response.put("result", result);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.debug("Command failed: " + request, e);
+            response.put("ok", false);
+            response.put("error", e.getMessage() == null ? e.toString() : e.getMessage());
+        }
+        return response;
+    }
+
+    private Object execute(String cmd, Map<String, Object> request) {
+        switch (cmd) {
+            case "elements":
+                List<Object> res = new ArrayList<>(elements.size());
+                for (TestElement te : elements) {
+                    res.add(describe(te));
+                }
+                return res;
+            case "threadGroups":
+                List<Object> tgs = new ArrayList<>();
+                for (AbstractThreadGroup tg : debugger.getThreadGroups()) {
+                    tgs.add(describe(tg));
+                }
+                return tgs;
+            case "selectThreadGroup":
+                TestElement tg = getElement(request);
+                if (!(tg instanceof AbstractThreadGroup)) {
+                    throw new IllegalArgumentException("Not a thread group: " + tg.getName());
+                }
+                debugger.selectThreadGroup((AbstractThreadGroup) tg);
+                return describe(tg);
+            case "start":
+                if (request.containsKey("threads")) {
+                    debugger.setThreadCount(getInt(request, "threads"));
+                }
+                debugger.start();
+                return null;
+            case "stop":
+                debugger.stop();
+                return null;
+            case "step":
+                debugger.proceed();
+                return null;
+            case "continue":
+                debugger.continueRun();
+                return null;
+            case "pause":
+                debugger.pause();
+                return null;
+            case "breakpoint":
+                return setBreakpoint(getElement(request), request);
+            case "threads":
+                return describeThreads();
+            case "selectThread":
+                int index = getInt(request, "index");
+                List<DebuggedThread> threads = debugger.getThreads();
+                if (index < 0 || index >= threads.size()) {
+                    throw new IllegalArgumentException("No thread #" + index);
+                }
+                debugger.selectThread(threads.get(index));
+                return describeThreads();
+            case "evaluate":
+                return evaluate(String.valueOf(request.get("expr")));
+            case "variables":
+                return getVariables();
+            case "logpoints":
+                return debugger.drainLogpoints();
+            case "history":
+                return getHistory(request.containsKey("back") ? getInt(request, "back") : 0);
+            case "rerun":
+                return rerun();
+            case "forgetReplayed":
+                return debugger.forgetReplayed(getElement(request));
+            default:
+                throw new IllegalArgumentException("Unknown command: " + cmd);
+        }
+    }
+
+    private Map<String, Object> setBreakpoint(TestElement te, Map<String, Object> request) {
+        boolean configured = false;
+        if (request.containsKey("condition")) {
+            Debugger.setBreakpointCondition(te, String.valueOf(request.get("condition")));
+            configured = true;
+        }
+        if (request.containsKey("log")) {
+            Debugger.setLogMessage(te, String.valueOf(request.get("log")));
+            configured = true;
+        }
+        if (request.containsKey("hitCount")) {
+            Debugger.setHitCount(te, getInt(request, "hitCount"), Boolean.TRUE.equals(request.get("every")));
+            configured = true;
+        }
+
+        Object enabled = request.get("enabled");
+        if (enabled == null ? !configured : Debugger.isBreakpoint(te) != Boolean.TRUE.equals(enabled)) {
+            Debugger.toggleBreakpoint(te);
+        }
+        return describe(te);
+    }
+
+    private String evaluate(String expression) {
+        DebuggedThread thread = debugger.getSelectedThread();
+        if (thread != null && !thread.isFrozen()) {
+            throw new IllegalStateException("Thread is not paused");
+        }
+
+        Outcome<String> outcome = new Outcome<>();
+        evaluator.setExpression(expression);
+        if (evaluator.getExpression().isEmpty()) {
+            return "";
+        }
+        evaluator.evaluate(getSelectedContext(), outcome);
+        return outcome.await();
+    }
+
+    private Map<String, Object> rerun() {
+        Rerun rerun = debugger.getRerun();
+        Outcome<Rerun> outcome = new Outcome<>();
+        evaluator.submit(rerun.getContext(), rerun, outcome);
+        outcome.await();
+
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("element", getId(debugger.getCurrentElement()));
+        res.put("changes", rerun.getChanges());
+        AssertionResult assertion = rerun.getAssertionResult();
+        if (assertion != null) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("failure", assertion.isFailure());
+            result.put("error", assertion.isError());
+            result.put("message", assertion.getFailureMessage());
+            res.put("assertion", result);
+        }
+        return res;
+    }
+
+    private Map<String, Object> getVariables() {
+        Map<String, Object> res = new TreeMap<>();
+        JMeterVariables vars = getSelectedContext().getVariables();
+        if (vars != null) {
+            for (Map.Entry<String, Object> entry : vars.entrySet()) {
+                res.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return res;
+    }
+
+    private Map<String, Object> getHistory(int stepsBack) {
+        HistoryFrame frame = debugger.getHistoryFrame(stepsBack);
+        if (frame == null) {
+            throw new IllegalArgumentException("Step " + stepsBack + " back is not available, history has " + debugger.getHistorySize());
+        }
+
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("back", stepsBack);
+        res.put("size", debugger.getHistorySize());
+        res.put("element", getId(frame.getElement()));
+        res.put("name", frame.getElement().getName());
+        res.put("sampler", frame.getSampler() == null ? null : frame.getSampler().getName());
+        SampleResult result = frame.getPreviousResult();
+        if (result != null) {
+            Map<String, Object> prev = new LinkedHashMap<>();
+            prev.put("label", result.getSampleLabel());
+            prev.put("responseCode", result.getResponseCode());
+            prev.put("success", result.isSuccessful());
+            res.put("previousResult", prev);
+        }
+        res.put("variables", new TreeMap<>(frame.getVariables()));
+        return res;
+    }
+
+    private JMeterContext getSelectedContext() {
+        DebuggedThread thread = debugger.getSelectedThread();
+        return thread == null ? JMeterContextService.getContext() : thread.getContext();
+    }
+
+    private List<Object> describeThreads() {
+        List<Object> res = new ArrayList<>();
+        DebuggedThread selected = debugger.getSelectedThread();
+        for (DebuggedThread thread : debugger.getThreads()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", thread.getName());
+            item.put("selected", thread == selected);
+            item.put("continuing", thread.isContinuing());
+            item.put("frozen", thread.isFrozen());
+            item.put("element", getId(thread.getCurrentElement()));
+            res.add(item);
+        }
+        return res;
+    }
+
+    private Map<String, Object> describe(TestElement te) {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("id", ids.get(te));
+        res.put("name", te.getName());
+        res.put("type", te.getClass().getSimpleName());
+        res.put("depth", depths.get(te));
+        res.put("enabled", te.isEnabled());
+        res.put("breakpoint", Debugger.isBreakpoint(te));
+        return res;
+    }
+
+    private Integer getId(Object element) {
+        if (element instanceof OriginalLink) {
+            element = ((OriginalLink) element).getOriginal();
+        }
+        //noinspection SuspiciousMethodCalls
+        return element == null ? null : ids.get(element);
+    }
+
+    private TestElement getElement(Map<String, Object> request) {
+        int id = getInt(request, "element");
+        if (id < 0 || id >= elements.size()) {
+            throw new IllegalArgumentException("No element #" + id);
+        }
+        return elements.get(id);
+    }
+
+    private static int getInt(Map<String, Object> request, String key) {
+        Object val = request.get(key);
+        if (!(val instanceof Number)) {
+            throw new IllegalArgumentException("Number expected in '" + key + "'");
+        }
+        return ((Number) val).intValue();
+    }
+
+    private void fire(String event, Map<String, Object> data) {
+        Map<String, Object> msg = new LinkedHashMap<>();
+        msg.put("event", event);
+        msg.putAll(data);
+        for (EventListener listener : listeners) {
+            listener.onEvent(msg);
+        }
+    }
+
+    @Override
+    public void started() {
+        fire("started", new LinkedHashMap<String, Object>());
+    }
+
+    @Override
+    public void stopped() {
+        evaluator.threadPaused(); // no debugged thread left, evaluation goes to command thread's context
+        fire("stopped", new LinkedHashMap<String, Object>());
+    }
+
+    @Override
+    public void continuing() {
+        evaluator.threadResumed();
+        fire("continuing", new LinkedHashMap<String, Object>());
+    }
+
+    @Override
+    public void frozenAt(Wrapper wrapper) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        DebuggedThread thread = debugger.getSelectedThread();
+        data.put("thread", thread == null ? null : thread.getName());
+        data.put("element", getId(wrapper));
+        data.put("name", wrapper.getName());
+        Sampler sampler = thread == null ? null : thread.getCurrentSampler();
+        data.put("sampler", sampler == null ? null : sampler.getName());
+        fire("frozenAt", data);
+    }
+
+    @Override
+    public void statusRefresh(StatusSnapshot snapshot) {
+        // clients ask for variables when they need them, no reason to push every change
+        if (!snapshot.isContinuing()) {
+            evaluator.threadPaused();
+        }
+    }
+
+    /**
+     * Blocks command thread until evaluator delivers, evaluator's own timeout bounds the wait
+     */
+    private class Outcome<T> implements ExpressionEvaluator.Callback<T> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private T result;
+        private Throwable error;
+
+        @Override
+        public synchronized void evaluated(T result, Throwable error) {
+            this.result = result;
+            this.error = error;
+            done.countDown();
+        }
+
+        private T await() {
+            try {
+                if (!done.await(evaluator.getTimeout() + 1000, TimeUnit.MILLISECONDS)) {
+                    evaluator.cancel();
+                    throw new IllegalStateException("Evaluation was cancelled");
+                }
+            } catch (InterruptedException e) {
+                evaluator.cancel();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while evaluating", e);
+            }
+
+            synchronized (this) {
+                if (error != null) {
+                    throw new IllegalStateException(error.getMessage() == null ? error.toString() : error.getMessage(), error);
+                }
+                return result;
+            }
+        }
+    }
+
+    public interface EventListener {
+        void onEvent(Map<String, Object> event);
+    }
+}
@@ -0,0 +1,34 @@
+package com.blazemeter.jmeter.debugger.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Date;
+
+/**
+ * Prints trace journal as text, one step per line: time since start, thread, wrapper type, element,
+ * current sampler and changed variables (removed ones prefixed with minus)
+ */
+public class TraceDump {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: TraceDump journal.trace");
+            System.exit(1);
+        }
+
+        dump(new File(args[0]), System.out);
+    }
+
+    public static long dump(File file, PrintStream out) throws IOException {
+        long count = 0;
+        try (TraceReader reader = new TraceReader(file)) {
+            out.println("Recorded " + new Date(reader.getStartTime()));
+            TraceEvent event;
+            while ((event = reader.next()) != null) {
+                out.println(event);
+                count++;
+            }
+        }
+        return count;
+    }
+}
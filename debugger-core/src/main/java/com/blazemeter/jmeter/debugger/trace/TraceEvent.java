@@ -0,0 +1,92 @@
+package com.blazemeter.jmeter.debugger.trace;
+
+import java.util.Map;
+
+/**
+ * Single step read back from trace journal
+ */
+public class TraceEvent {
+    private final long time;
+    private final String thread;
+    private final String type;
+    private final int elementId;
+    private final String element;
+    private final int samplerId;
+    private final String sampler;
+    private final Map<String, String> changes;
+
+    public TraceEvent(long time, String thread, String type, int elementId, String element, int samplerId, String sampler, Map<String, String> changes) {
+        this.time = time;
+        this.thread = thread;
+        this.type = type;
+        this.elementId = elementId;
+        this.element = element;
+        this.samplerId = samplerId;
+        this.sampler = sampler;
+        this.changes = changes;
+    }
+
+    /**
+     * @return nanoseconds since recording started
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    /**
+     * @return simple class name of wrapper that stepped, like SamplerDebug
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return id of element, stays the same for all steps on it within one journal
+     */
+    public int getElementId() {
+        return elementId;
+    }
+
+    public String getElement() {
+        return element;
+    }
+
+    /**
+     * @return id of current sampler or -1 if there was none
+     */
+    public int getSamplerId() {
+        return samplerId;
+    }
+
+    public String getSampler() {
+        return sampler;
+    }
+
+    /**
+     * @return variables changed since previous step of the same thread, removed ones have null value
+     */
+    public Map<String, String> getChanges() {
+        return changes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder res = new StringBuilder();
+        res.append(String.format("%12.3fms", time / 1000000.0)).append(' ').append(thread).append(' ').append(type).append(" \"").append(element).append('"');
+        if (sampler != null) {
+            res.append(" sampler \"").append(sampler).append('"');
+        }
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                res.append(" -").append(change.getKey());
+            } else {
+                res.append(' ').append(change.getKey()).append('=').append(change.getValue());
+            }
+        }
+        return res.toString();
+    }
+}
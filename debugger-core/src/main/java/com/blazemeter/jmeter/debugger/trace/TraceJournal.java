@@ -0,0 +1,161 @@
+package com.blazemeter.jmeter.debugger.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Append-only binary journal written through memory-mapped window that moves along the file,
+ * so heap use does not depend on journal size. Each record is tag byte and its fields,
+ * unwritten part of the file is zero-filled and reads as {@link #END}.
+ * Step record is built with begin/put/commit, definitions it refers to are written in between by {@link #define}.
+ * Not thread-safe, {@link TraceRecorder} serializes access.
+ */
+public class TraceJournal implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(TraceJournal.class);
+
+    static final int MAGIC = 0x4A444254; // "JDBT"
+    static final int VERSION = 1;
+    static final byte END = 0;
+    static final byte STRING = 1;
+    static final byte ELEMENT = 2;
+    static final byte STEP = 3;
+    static final int NONE = -1;
+
+    private static final int DEFAULT_WINDOW = 4 * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private ByteBuffer record = ByteBuffer.allocate(1024);
+
+    public TraceJournal(File target) throws IOException {
+        this(target, DEFAULT_WINDOW);
+    }
+
+    TraceJournal(File target, int windowSize) throws IOException {
+        this.windowSize = windowSize;
+        file = new RandomAccessFile(target, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        window = channel.map(FileChannel.MapMode.READ_WRITE, 0, windowSize);
+
+        ((Buffer) record).clear();
+        record.putInt(MAGIC);
+        record.putInt(VERSION);
+        record.putLong(System.currentTimeMillis());
+        record.putLong(System.nanoTime());
+        write(record);
+    }
+
+    /**
+     * Writes definition record right away, so it may be called while step record is being built
+     */
+    public void define(byte tag, int id, String... values) {
+        byte[][] bytes = new byte[values.length][];
+        int size = 1 + 4;
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = values[i] == null ? null : values[i].getBytes(StandardCharsets.UTF_8);
+            size += 4 + (bytes[i] == null ? 0 : bytes[i].length);
+        }
+
+        ByteBuffer definition = ByteBuffer.allocate(size);
+        definition.put(tag);
+        definition.putInt(id);
+        for (byte[] value : bytes) {
+            if (value == null) {
+                definition.putInt(NONE);
+            } else {
+                definition.putInt(value.length);
+                definition.put(value);
+            }
+        }
+        write(definition);
+    }
+
+    public void begin(byte tag) {
+        ((Buffer) record).clear(); // Buffer methods, so it runs on Java 8 when built by newer JDK
+        record.put(tag);
+    }
+
+    public void putInt(int value) {
+        ensure(4);
+        record.putInt(value);
+    }
+
+    public void putLong(long value) {
+        ensure(8);
+        record.putLong(value);
+    }
+
+    /**
+     * Length-prefixed UTF-8, null is written as {@link #NONE} length
+     */
+    public void putString(String value) {
+        if (value == null) {
+            putInt(NONE);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        ensure(bytes.length);
+        record.put(bytes);
+    }
+
+    public void commit() {
+        write(record);
+    }
+
+    /**
+     * @return bytes written so far, including header
+     */
+    public long getLength() {
+        return windowStart + window.position();
+    }
+
+    private void ensure(int bytes) {
+        if (record.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+            ((Buffer) record).flip();
+            bigger.put(record);
+            record = bigger;
+        }
+    }
+
+    private void write(ByteBuffer data) {
+        ((Buffer) data).flip();
+        if (window.remaining() < data.remaining()) {
+            windowStart += window.position();
+            try {
+                window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, Math.max(windowSize, data.remaining()));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to extend trace journal", e);
+            }
+        }
+        window.put(data);
+    }
+
+    @Override
+    public void close() throws IOException {
+        long length = getLength();
+        window.force();
+        try {
+            channel.truncate(length);
+        } catch (IOException e) {
+            log.debug("Cannot truncate mapped journal, readers stop at zero tag anyway", e);
+        }
+        file.close();
+    }
+}
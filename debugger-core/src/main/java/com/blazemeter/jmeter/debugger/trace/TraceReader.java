@@ -0,0 +1,123 @@
+package com.blazemeter.jmeter.debugger.trace;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams events out of journal written by {@link TraceRecorder}, holding only element and string tables in memory
+ */
+public class TraceReader implements Closeable {
+    private final DataInputStream in;
+    private final long startTime;
+    private final long startNanos;
+    private final List<String> strings = new ArrayList<>();
+    private final List<String> elements = new ArrayList<>();
+
+    public TraceReader(File file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != TraceJournal.MAGIC) {
+                throw new IOException("Not a debugger trace journal: " + file);
+            }
+            int version = in.readInt();
+            if (version != TraceJournal.VERSION) {
+                throw new IOException("Unsupported trace journal version " + version + ": " + file);
+            }
+            startTime = in.readLong();
+            startNanos = in.readLong();
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return wall clock millis when recording started
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return next event or null when journal is over
+     */
+    public TraceEvent next() throws IOException {
+        while (true) {
+            int tag = in.read();
+            switch (tag) {
+                case -1:
+                case TraceJournal.END:
+                    return null;
+                case TraceJournal.STRING:
+                    define(strings, in.readInt(), readString());
+                    break;
+                case TraceJournal.ELEMENT:
+                    define(elements, in.readInt(), readString());
+                    break;
+                case TraceJournal.STEP:
+                    return readStep();
+                default:
+                    throw new IOException("Corrupted trace journal, unknown record " + tag);
+            }
+        }
+    }
+
+    private TraceEvent readStep() throws IOException {
+        int element = in.readInt();
+        int type = in.readInt();
+        int thread = in.readInt();
+        long time = in.readLong() - startNanos;
+        int sampler = in.readInt();
+        Map<String, String> changes = new LinkedHashMap<>();
+        int name;
+        while ((name = in.readInt()) != TraceJournal.NONE) {
+            changes.put(strings.get(name), readString());
+        }
+        return new TraceEvent(time, strings.get(thread), strings.get(type), element, elements.get(element), sampler,
+                sampler == TraceJournal.NONE ? null : elements.get(sampler), Collections.unmodifiableMap(changes));
+    }
+
+    private String readString() throws IOException {
+        int len = in.readInt();
+        if (len == TraceJournal.NONE) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void define(List<String> table, int id, String value) throws IOException {
+        if (id != table.size()) {
+            throw new IOException("Corrupted trace journal, unexpected id " + id);
+        }
+        table.add(value);
+    }
+
+    /**
+     * @return all remaining events, for journals small enough to be displayed at once
+     */
+    public List<TraceEvent> readAll() throws IOException {
+        List<TraceEvent> res = new ArrayList<>();
+        TraceEvent event;
+        while ((event = next()) != null) {
+            res.add(event);
+        }
+        return res;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,90 @@
+package com.blazemeter.jmeter.debugger.trace;
+
+import org.apache.jmeter.testelement.TestElement;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Writes step events of debugged threads into {@link TraceJournal}: element, wrapper type, thread, time,
+ * current sampler and variables changed since previous step of the same thread.
+ * Removed variables are written with null value, changes list ends with {@link TraceJournal#NONE}.
+ * Elements and repeating strings are written once and referred by id afterwards.
+ */
+public class TraceRecorder implements Closeable {
+    private final TraceJournal journal;
+    private final Map<TestElement, Integer> elements = new IdentityHashMap<>();
+    private final Map<String, Integer> strings = new HashMap<>();
+    private boolean closed;
+
+    public TraceRecorder(File file) throws IOException {
+        this(new TraceJournal(file));
+    }
+
+    TraceRecorder(TraceJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Elements are expected to be originals from test plan
+     *
+     * @param changes variables changed since previous step of the thread, removed ones with null value
+     */
+    public synchronized void record(String thread, Class<?> wrapperType, TestElement element, TestElement sampler, Map<String, Object> changes) {
+        long time = System.nanoTime();
+        if (closed) {
+            return;
+        }
+
+        int elementId = getElementId(element);
+        int samplerId = sampler == null ? TraceJournal.NONE : getElementId(sampler);
+        int typeId = getStringId(wrapperType.getSimpleName());
+        int threadId = getStringId(thread);
+
+        journal.begin(TraceJournal.STEP);
+        journal.putInt(elementId);
+        journal.putInt(typeId);
+        journal.putInt(threadId);
+        journal.putLong(time);
+        journal.putInt(samplerId);
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            int nameId = getStringId(change.getKey());
+            journal.putInt(nameId);
+            journal.putString(change.getValue() == null ? null : String.valueOf(change.getValue()));
+        }
+        journal.putInt(TraceJournal.NONE);
+        journal.commit();
+    }
+
+    private int getElementId(TestElement te) {
+        Integer id = elements.get(te);
+        if (id == null) {
+            id = elements.size();
+            elements.put(te, id);
+            journal.define(TraceJournal.ELEMENT, id, te.getName());
+        }
+        return id;
+    }
+
+    private int getStringId(String str) {
+        Integer id = strings.get(str);
+        if (id == null) {
+            id = strings.size();
+            strings.put(str, id);
+            journal.define(TraceJournal.STRING, id, str);
+        }
+        return id;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            journal.close();
+        }
+    }
+}
@@ -8,4 +8,8 @@ public class JMeterContextServiceAccessor {
     public static void removeContext() {
         JMeterContextService.removeContext();
     }
+
+    public static JMeterContext createContext() {
+        return new JMeterContext();
+    }
 }
@@ -0,0 +1,45 @@
+package com.blazemeter.jmeter.debugger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs main class in separate JVM with -verbose:class, so tests can see which classes it loads
+ */
+public class ClassLoadLog {
+    private static final String JAVA8_PREFIX = "[Loaded ";
+    private static final String JAVA9_TAG = "[class,load] ";
+
+    public static Process start(Class<?> mainClass, String... args) throws IOException {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath();
+        List<String> cmd = new ArrayList<>(Arrays.asList(java, "-verbose:class", "-cp", System.getProperty("java.class.path"), mainClass.getName()));
+        cmd.addAll(Arrays.asList(args));
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        pb.redirectErrorStream(true);
+        return pb.start();
+    }
+
+    /**
+     * @return class name if output line reports class load, null otherwise
+     */
+    public static String getLoadedClass(String line) {
+        int start;
+        if (line.startsWith(JAVA8_PREFIX)) {
+            start = JAVA8_PREFIX.length();
+        } else if (line.contains(JAVA9_TAG)) {
+            start = line.indexOf(JAVA9_TAG) + JAVA9_TAG.length();
+        } else {
+            return null;
+        }
+
+        int end = line.indexOf(' ', start);
+        return end < 0 ? null : line.substring(start, end);
+    }
+
+    public static boolean isAwt(String className) {
+        return className.startsWith("java.awt.") || className.startsWith("javax.swing.");
+    }
+}
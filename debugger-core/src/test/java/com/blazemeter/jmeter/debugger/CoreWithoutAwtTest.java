@@ -0,0 +1,85 @@
+package com.blazemeter.jmeter.debugger;
+
+import com.blazemeter.jmeter.debugger.engine.Debugger;
+import org.apache.jmeter.util.JMeterUtils;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Loads and initializes every class of debugger-core in clean JVM, none of them may bring AWT or Swing in
+ */
+public class CoreWithoutAwtTest {
+    private static final String BASELINE = "JMeter baseline loaded";
+    private static final String DONE = "All core classes loaded: ";
+
+    @Test
+    public void noAwt() throws Exception {
+        File classes = new File(Debugger.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        assertTrue("Core classes must come from directory: " + classes, classes.isDirectory());
+
+        Process process = ClassLoadLog.start(CoreWithoutAwtTest.class, classes.getAbsolutePath());
+        List<String> awt = new ArrayList<>();
+        boolean ours = false;
+        String done = null;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                String loaded = ClassLoadLog.getLoadedClass(line);
+                if (ours && loaded != null && ClassLoadLog.isAwt(loaded)) {
+                    awt.add(loaded);
+                } else if (line.startsWith(BASELINE)) {
+                    ours = true;
+                } else if (line.startsWith(DONE)) {
+                    done = line;
+                }
+            }
+        }
+        assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+        assertTrue("Loader did not finish", done != null && Integer.parseInt(done.substring(DONE.length())) > 30);
+        assertEquals(new ArrayList<String>(), awt);
+    }
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        final Path root = new File(args[0]).toPath();
+        final List<String> names = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String name = root.relativize(file).toString();
+                if (name.endsWith(".class")) {
+                    names.add(name.substring(0, name.length() - ".class".length()).replace(File.separatorChar, '.'));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        // JMeterUtils links Swing on its own, we can only guarantee not adding anything on top of it
+        Class.forName(JMeterUtils.class.getName(), true, CoreWithoutAwtTest.class.getClassLoader());
+        System.out.println(BASELINE);
+
+        for (String name : names) {
+            try {
+                Class.forName(name, true, CoreWithoutAwtTest.class.getClassLoader()); // verifies and runs static init
+            } catch (ClassNotFoundException | LinkageError e) {
+                throw new IllegalStateException("Failed to load " + name, e);
+            }
+        }
+        System.out.println(DONE + names.size());
+    }
+}
@@ -2,7 +2,7 @@ package com.blazemeter.jmeter.debugger;
 
 import com.blazemeter.jmeter.debugger.elements.Wrapper;
 import com.blazemeter.jmeter.debugger.engine.DebuggerFrontend;
-import org.apache.jmeter.threads.JMeterContext;
+import com.blazemeter.jmeter.debugger.engine.StatusSnapshot;
 
 
 public class FrontendMock implements DebuggerFrontend {
@@ -27,7 +27,7 @@ public class FrontendMock implements DebuggerFrontend {
     }
 
     @Override
-    public void statusRefresh(JMeterContext context) {
+    public void statusRefresh(StatusSnapshot snapshot) {
 
     }
 }
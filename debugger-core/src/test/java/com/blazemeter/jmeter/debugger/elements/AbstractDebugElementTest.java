@@ -0,0 +1,39 @@
+package com.blazemeter.jmeter.debugger.elements;
+
+import kg.apc.emulators.TestJMeterUtils;
+import org.apache.jmeter.sampler.DebugSampler;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AbstractDebugElementTest {
+    @BeforeClass
+    public static void setUp() {
+        TestJMeterUtils.createJmeterEnv();
+    }
+
+    @Test
+    public void prepareBeanOncePerIteration() {
+        DebugSampler sampler = new DebugSampler();
+        sampler.setProperty("displayJMeterVariables", false);
+        SamplerDebug wrapper = new SamplerDebug();
+        wrapper.setWrappedElement(sampler);
+
+        wrapper.prepareBean();
+        assertFalse(sampler.isDisplayJMeterVariables());
+
+        sampler.setProperty("displayJMeterVariables", true); // bypasses wrapper, like a sampler changing itself
+        wrapper.prepareBean();
+        assertFalse(sampler.isDisplayJMeterVariables());
+
+        wrapper.iterationStart(null);
+        wrapper.prepareBean();
+        assertTrue(sampler.isDisplayJMeterVariables());
+
+        wrapper.setProperty("displayJMeterVariables", false); // edited during pause
+        wrapper.prepareBean();
+        assertFalse(sampler.isDisplayJMeterVariables());
+    }
+}
@@ -0,0 +1,122 @@
+package com.blazemeter.jmeter.debugger.elements;
+
+import kg.apc.emulators.TestJMeterUtils;
+import org.apache.jmeter.control.GenericController;
+import org.apache.jmeter.sampler.DebugSampler;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.TestCompiler;
+import org.apache.jmeter.threads.TestCompilerHelper;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GenericControllerDebugTest {
+    private static final Logger log = LoggerFactory.getLogger(GenericControllerDebugTest.class);
+
+    @BeforeClass
+    public static void setUp() {
+        TestJMeterUtils.createJmeterEnv();
+    }
+
+    @Test
+    public void addTestElementOnce() {
+        GenericControllerDebug wrapper = new GenericControllerDebug();
+        GenericController wrapped = new GenericController();
+        wrapper.setWrappedElement(wrapped);
+        TestCompilerHelper helper = wrapped;
+
+        DebugSampler once = new DebugSampler();
+        assertTrue(wrapper.addTestElementOnce(once));
+        assertFalse(wrapper.addTestElementOnce(once));
+        assertFalse(helper.addTestElementOnce(once)); // came to wrapped through its addTestElementOnce
+
+        DebugSampler direct = new DebugSampler();
+        wrapper.addTestElement(direct);
+        assertFalse(helper.addTestElementOnce(direct)); // recorded in wrapped's dedup map either way
+
+        GenericControllerDebug clone = (GenericControllerDebug) wrapper.clone();
+        DebugSampler cloned = new DebugSampler();
+        assertTrue(clone.addTestElementOnce(cloned));
+        assertFalse(((TestCompilerHelper) clone.getWrappedElement()).addTestElementOnce(cloned));
+    }
+
+    /**
+     * Timing comparison, opt-in with -Ddebugger.benchmark=true since shared machines make it noisy
+     */
+    @Test
+    public void benchmark() {
+        Assume.assumeTrue(Boolean.getBoolean("debugger.benchmark"));
+        for (int n = 0; n < 3; n++) { // warm-up
+            compile(new GenericControllerDebug());
+            compile(new StackTraceControllerDebug());
+        }
+
+        long flag = Long.MAX_VALUE;
+        long stackTrace = Long.MAX_VALUE;
+        for (int n = 0; n < 5; n++) {
+            flag = Math.min(flag, compile(new GenericControllerDebug()));
+            stackTrace = Math.min(stackTrace, compile(new StackTraceControllerDebug()));
+        }
+
+        log.info("Test compilation, flag: " + flag / 1000000 + "ms, stack trace: " + stackTrace / 1000000 + "ms");
+    }
+
+    /**
+     * @return nanoseconds spent compiling deep controller tree made of given wrapper prototype
+     */
+    private long compile(GenericControllerDebug prototype) {
+        HashTree tree = new ListedHashTree();
+        addLevel(tree, prototype, 6);
+        TestCompiler.initialize();
+        TestCompiler compiler = new TestCompiler(tree);
+        long start = System.nanoTime();
+        tree.traverse(compiler);
+        long time = System.nanoTime() - start;
+
+        Object root = tree.getArray()[0];
+        TestCompilerHelper wrapped = ((GenericControllerDebug) root).getWrappedElement();
+        for (Object child : tree.getTree(root).list()) {
+            assertFalse(wrapped.addTestElementOnce((TestElement) child));
+        }
+        return time;
+    }
+
+    private void addLevel(HashTree parent, GenericControllerDebug prototype, int depth) {
+        GenericControllerDebug ctl = (GenericControllerDebug) prototype.clone();
+        ctl.setWrappedElement(new GenericController());
+        HashTree level = parent.add(ctl);
+        if (depth == 0) {
+            return;
+        }
+
+        for (int n = 0; n < 4; n++) {
+            addLevel(level, prototype, depth - 1);
+        }
+        for (int n = 0; n < 5; n++) {
+            level.add(new DebugSampler());
+        }
+    }
+
+    /**
+     * Previous way of telling addTestElementOnce calls apart
+     */
+    public static class StackTraceControllerDebug extends GenericControllerDebug {
+        @Override
+        public void addTestElement(TestElement child) {
+            StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+            if (stack[2].getMethodName().equals("addTestElementOnce")) {
+                TestCompilerHelper wrapped = this.wrapped;
+                wrapped.addTestElementOnce(child);
+            } else {
+                wrapped.addTestElement(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import kg.apc.emulators.TestJMeterUtils;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BreakpointTest {
+    private static final Logger log = LoggerFactory.getLogger(BreakpointTest.class);
+
+    @BeforeClass
+    public static void setUp() {
+        TestJMeterUtils.createJmeterEnv();
+    }
+
+    @Test
+    public void unconditional() {
+        Breakpoint bp = new Breakpoint(null);
+        assertFalse(bp.isConditional());
+        assertTrue(bp.isHit(new DebuggedThread(JMeterContextService.getContext(), "thread", false)));
+    }
+
+    @Test
+    public void condition() {
+        JMeterContext context = JMeterContextService.getContext();
+        context.setVariables(new JMeterVariables());
+        DebuggedThread thread = new DebuggedThread(context, "thread", false);
+        Breakpoint bp = new Breakpoint("${flag}");
+        assertTrue(bp.isConditional());
+
+        context.getVariables().put("flag", "false");
+        assertFalse(bp.isHit(thread));
+        context.getVariables().put("flag", "true");
+        assertTrue(bp.isHit(thread));
+
+        bp.setCondition("${other} ");
+        assertEquals("${other} ", bp.getCondition());
+        assertFalse(bp.isHit(thread));
+        context.getVariables().put("other", "TRUE");
+        assertTrue(bp.isHit(thread));
+
+        bp.setCondition("");
+        assertFalse(bp.isConditional());
+        assertTrue(bp.isHit(thread));
+    }
+
+    @Test
+    public void hitCount() {
+        JMeterContext context = JMeterContextService.getContext();
+        DebuggedThread thread = new DebuggedThread(context, "thread", false);
+        Breakpoint bp = new Breakpoint();
+        bp.setHitCount(3, false);
+        assertTrue(bp.isCounting());
+        assertFalse(bp.isHit(thread));
+        assertFalse(bp.isHit(thread));
+        assertTrue(bp.isHit(thread));
+        assertFalse(bp.isHit(thread));
+
+        thread = new DebuggedThread(context, "next run", false);
+        bp.setHitCount(2, true);
+        assertFalse(bp.isHit(thread));
+        assertTrue(bp.isHit(thread));
+        assertFalse(bp.isHit(thread));
+        assertTrue(bp.isHit(thread));
+    }
+
+    @Test
+    public void hitCountPerThread() {
+        JMeterContext context = JMeterContextService.getContext();
+        DebuggedThread first = new DebuggedThread(context, "first", false);
+        DebuggedThread second = new DebuggedThread(context, "second", false);
+        Breakpoint bp = new Breakpoint();
+        bp.setHitCount(2, false);
+        assertFalse(bp.isHit(first));
+        assertFalse(bp.isHit(second)); // second hit overall, but first of this thread
+        assertTrue(bp.isHit(first));
+        assertTrue(bp.isHit(second));
+        assertFalse(bp.isHit(first));
+    }
+
+    @Test
+    public void logpoint() {
+        JMeterContext context = JMeterContextService.getContext();
+        context.setVariables(new JMeterVariables());
+        context.getVariables().put("counter", "7");
+        Breakpoint bp = new Breakpoint();
+        bp.setLogMessage("counter=${counter}");
+        assertTrue(bp.isLogpoint());
+        assertEquals("counter=7", bp.formatMessage(context));
+
+        LogpointQueue queue = new LogpointQueue(2);
+        queue.offer("1");
+        queue.offer("2");
+        queue.offer("3");
+        List<String> res = queue.drain();
+        assertEquals(3, res.size());
+        assertEquals("1", res.get(0));
+        assertEquals("... 1 logpoint messages dropped", res.get(2));
+        assertTrue(queue.drain().isEmpty());
+    }
+
+    @Test
+    public void evaluationCost() {
+        JMeterContext context = JMeterContextService.getContext();
+        context.setVariables(new JMeterVariables());
+        DebuggedThread thread = new DebuggedThread(context, "thread", false);
+        Breakpoint bp = new Breakpoint("${flag}");
+
+        int count = 100000;
+        for (int n = 0; n < count; n++) { // warm-up
+            context.getVariables().put("flag", Boolean.toString(n % 2 == 0));
+            bp.isHit(thread);
+        }
+
+        long start = System.nanoTime();
+        int hits = 0;
+        for (int n = 0; n < count; n++) {
+            context.getVariables().put("flag", Boolean.toString(n % 10 == 0));
+            if (bp.isHit(thread)) {
+                hits++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        log.info("Condition evaluation per element: " + (elapsed / count) + "ns");
+        assertEquals(count / 10, hits);
+    }
+}
@@ -0,0 +1,335 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import com.blazemeter.jmeter.debugger.FrontendMock;
+import com.blazemeter.jmeter.debugger.TestProvider;
+import com.blazemeter.jmeter.debugger.elements.DebuggingThreadGroup;
+import com.blazemeter.jmeter.debugger.elements.OriginalLink;
+import com.blazemeter.jmeter.debugger.elements.SamplerDebug;
+import com.blazemeter.jmeter.debugger.elements.Wrapper;
+import com.blazemeter.jmeter.debugger.trace.TraceEvent;
+import com.blazemeter.jmeter.debugger.trace.TraceReader;
+import kg.apc.emulators.TestJMeterUtils;
+import org.apache.jmeter.control.Controller;
+import org.apache.jmeter.control.LoopController;
+import org.apache.jmeter.sampler.DebugSampler;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jorphan.collections.HashTree;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class DebuggerTest {
+    @Test
+    public void testMain() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        TestProvider treeProvider = new TestProvider();
+        Debugger dbg = new Debugger(treeProvider, new FrontendMock());
+        dbg.selectThreadGroup(treeProvider.getTG(0));
+
+        Debugger.toggleBreakpoint(treeProvider.getTG(0));
+
+        dbg.start();
+        Thread.sleep(5000);
+        Assert.assertFalse(dbg.isContinuing());
+        Assert.assertTrue(dbg.getCurrentElement() instanceof Controller);
+        dbg.proceed();
+        Thread.sleep(1000);
+        dbg.proceed();
+        Assert.assertTrue(dbg.getCurrentSampler() != null);
+        Thread.sleep(1000);
+        dbg.continueRun();
+        Thread.sleep(2000);
+        dbg.pause();
+        Thread.sleep(1000);
+        dbg.stop();
+    }
+
+    @Test
+    public void testFrozenWhenNotified() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        TestProvider treeProvider = new TestProvider();
+        final List<Boolean> frozen = new CopyOnWriteArrayList<>();
+        final Debugger[] holder = new Debugger[1];
+        Debugger dbg = new Debugger(treeProvider, new FrontendMock() {
+            @Override
+            public void frozenAt(Wrapper wrapper) {
+                frozen.add(holder[0].getSelectedThread().isFrozen()); // replies to the event must see the pause
+            }
+        });
+        holder[0] = dbg;
+        dbg.selectThreadGroup(treeProvider.getTG(0));
+
+        dbg.start();
+        try {
+            for (int n = 0; n < 50 && frozen.size() < 3; n++) {
+                if (!frozen.isEmpty()) {
+                    dbg.proceed();
+                }
+                Thread.sleep(100);
+            }
+            Assert.assertTrue(frozen.size() >= 3);
+            Assert.assertFalse(frozen.contains(false));
+        } finally {
+            dbg.stop();
+        }
+    }
+
+    @Test
+    public void testBreakpointToggle() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        TestProvider treeProvider = new TestProvider();
+        Debugger dbg = new Debugger(treeProvider, new FrontendMock());
+        AbstractThreadGroup tg = treeProvider.getTG(0);
+        Assert.assertFalse(Debugger.isBreakpoint(tg));
+
+        Debugger.toggleBreakpoint(tg);
+        Assert.assertTrue(Debugger.isBreakpoint(tg));
+        dbg.continueRun();
+        Assert.assertFalse(dbg.isPassThrough());
+
+        Debugger.toggleBreakpoint(tg);
+        Assert.assertFalse(Debugger.isBreakpoint(tg));
+        Assert.assertTrue(dbg.isPassThrough());
+    }
+
+    @Test
+    public void testMultipleThreads() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        TestProvider treeProvider = new TestProvider();
+        Debugger dbg = new Debugger(treeProvider, new FrontendMock());
+        dbg.selectThreadGroup(treeProvider.getTG(0));
+        dbg.setThreadCount(3);
+
+        dbg.start();
+        Thread.sleep(3000);
+        List<DebuggedThread> threads = dbg.getThreads();
+        Assert.assertEquals(3, threads.size());
+        for (DebuggedThread thread : threads) {
+            Assert.assertTrue(thread.isFrozen());
+            Assert.assertFalse(thread.isContinuing());
+        }
+
+        DebuggedThread first = dbg.getSelectedThread();
+        DebuggedThread second = threads.get(threads.get(0) == first ? 1 : 0);
+        Assert.assertNotSame(first.getContext(), second.getContext());
+        Assert.assertNotSame(first.getCurrentElement(), second.getCurrentElement());
+
+        dbg.selectThread(second);
+        Assert.assertSame(second, dbg.getSelectedThread());
+        dbg.continueRun();
+        Thread.sleep(1000);
+        Assert.assertTrue(second.isContinuing());
+        Assert.assertTrue(first.isFrozen());
+        Assert.assertFalse(first.isContinuing());
+
+        Wrapper frozenAt = first.getCurrentElement();
+        dbg.selectThread(first);
+        dbg.proceed();
+        Thread.sleep(1000);
+        Assert.assertNotSame(frozenAt, first.getCurrentElement());
+        dbg.stop();
+        Assert.assertTrue(dbg.getThreads().isEmpty());
+    }
+
+    @Test
+    public void testPreparedTreeCache() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        TestProvider treeProvider = new TestProvider();
+        AbstractThreadGroup tg = treeProvider.getTG(0);
+        Debugger dbg = new Debugger(treeProvider, new FrontendMock());
+        dbg.selectThreadGroup(tg);
+        HashTree prepared = dbg.getSelectedTree();
+
+        dbg.selectThreadGroup(tg);
+        Assert.assertSame(prepared, dbg.getSelectedTree());
+
+        Debugger other = new Debugger(treeProvider, new FrontendMock());
+        other.selectThreadGroup(tg);
+        Assert.assertSame(prepared, other.getSelectedTree());
+
+        Debugger.toggleBreakpoint(tg);
+        dbg.selectThreadGroup(tg);
+        Assert.assertSame(prepared, dbg.getSelectedTree());
+        Debugger.toggleBreakpoint(tg);
+
+        tg.setName("changed");
+        dbg.selectThreadGroup(tg);
+        Assert.assertNotSame(prepared, dbg.getSelectedTree());
+    }
+
+    @Test
+    public void testPreparedTreeCacheChecksElements() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        final TestProvider plan = new TestProvider();
+        StampedTreeProvider treeProvider = new StampedTreeProvider() {
+            @Override
+            public long getModificationStamp() {
+                return 0; // even a stamp that missed the edit does not serve stale tree
+            }
+
+            @Override
+            public HashTree getTestTree() {
+                return plan.getTestTree();
+            }
+        };
+        AbstractThreadGroup tg = plan.getTG(0);
+        Debugger dbg = new Debugger(treeProvider, new FrontendMock());
+        dbg.selectThreadGroup(tg);
+        HashTree prepared = dbg.getSelectedTree();
+
+        dbg.selectThreadGroup(tg);
+        Assert.assertSame(prepared, dbg.getSelectedTree());
+
+        HashTree tgTree = plan.getTestTree().getTree(plan.getTestTree().getArray()[0]).search(tg);
+        tgTree.add(new DebugSampler());
+        dbg.selectThreadGroup(tg);
+        Assert.assertNotSame(prepared, dbg.getSelectedTree());
+    }
+
+    @Test
+    public void testBreakpointOnly() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        TestProvider treeProvider = new TestProvider();
+        Debugger dbg = new Debugger(treeProvider, new FrontendMock());
+        dbg.setBreakpointOnly(true);
+        dbg.selectThreadGroup(treeProvider.getTG(0));
+        SearchClass<SamplerDebug> wrapped = new SearchClass<>(SamplerDebug.class);
+        dbg.getSelectedTree().traverse(wrapped);
+        Assert.assertTrue(wrapped.getSearchResults().isEmpty());
+        SearchClass<DebuggingThreadGroup> tgs = new SearchClass<>(DebuggingThreadGroup.class);
+        dbg.getSelectedTree().traverse(tgs);
+        ((LoopController) tgs.getSearchResults().iterator().next().getSamplerController()).setLoops(-1);
+
+        TestElement sampler = null;
+        SearchClass<DebugSampler> samplers = new SearchClass<>(DebugSampler.class);
+        treeProvider.getTestTree().traverse(samplers);
+        for (DebugSampler candidate : samplers.getSearchResults()) {
+            if (candidate.getName().equals("Debug Sampler 1")) {
+                sampler = candidate;
+            }
+        }
+        Assert.assertNotNull(sampler);
+
+        dbg.continueRun();
+        dbg.start();
+        try {
+            Thread.sleep(1000);
+            Assert.assertTrue(dbg.isContinuing());
+            Assert.assertNull(dbg.getCurrentElement());
+
+            Debugger.toggleBreakpoint(sampler);
+            for (int n = 0; n < 200 && dbg.isContinuing(); n++) { // re-instrumented on next iteration
+                Thread.sleep(100);
+            }
+            Assert.assertFalse(dbg.isContinuing());
+            Assert.assertTrue(dbg.getCurrentElement() instanceof OriginalLink);
+            Sampler current = dbg.getCurrentSampler();
+            Assert.assertTrue(current instanceof OriginalLink);
+            Assert.assertSame(sampler, ((OriginalLink) current).getOriginal());
+        } finally {
+            dbg.stop();
+            Debugger.toggleBreakpoint(sampler);
+        }
+    }
+
+    @Test
+    public void testTraceRecording() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        TestProvider treeProvider = new TestProvider();
+        Debugger dbg = new Debugger(treeProvider, new FrontendMock());
+        dbg.selectThreadGroup(treeProvider.getTG(0));
+        File trace = File.createTempFile("debugger", ".trace");
+        trace.deleteOnExit();
+        dbg.setTraceFile(trace);
+        Assert.assertFalse(dbg.isPassThrough());
+
+        dbg.continueRun();
+        dbg.start();
+        Thread.sleep(2000);
+        dbg.stop();
+
+        boolean samplerSeen = false;
+        boolean varsSeen = false;
+        try (TraceReader reader = new TraceReader(trace)) {
+            List<TraceEvent> events = reader.readAll();
+            Assert.assertTrue(events.size() > 10);
+            for (TraceEvent event : events) {
+                samplerSeen = samplerSeen || "SamplerDebug".equals(event.getType());
+                varsSeen = varsSeen || !event.getChanges().isEmpty();
+            }
+        }
+        Assert.assertTrue(samplerSeen);
+        Assert.assertTrue(varsSeen);
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        TestProvider treeProvider = new TestProvider();
+        Debugger dbg = new Debugger(treeProvider, new FrontendMock());
+        dbg.selectThreadGroup(treeProvider.getTG(0));
+        File dir = File.createTempFile("debugger", ".replay");
+        Assert.assertTrue(dir.delete());
+        dbg.setReplayDir(dir);
+
+        dbg.continueRun();
+        dbg.start();
+        Thread.sleep(2000);
+        dbg.stop();
+
+        File[] stored = dir.listFiles();
+        Assert.assertNotNull(stored);
+        Assert.assertTrue(stored.length > 0);
+
+        SearchClass<Sampler> searcher = new SearchClass<>(Sampler.class);
+        treeProvider.getTestTree().traverse(searcher);
+        int removed = 0;
+        for (Sampler sampler : searcher.getSearchResults()) {
+            removed += dbg.forgetReplayed((TestElement) sampler);
+        }
+        Assert.assertTrue(removed > 0);
+        Assert.assertEquals(0, dir.listFiles().length);
+        Assert.assertTrue(dir.delete());
+    }
+
+    @Test
+    public void testStepBack() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        TestProvider treeProvider = new TestProvider();
+        Debugger dbg = new Debugger(treeProvider, new FrontendMock());
+        dbg.selectThreadGroup(treeProvider.getTG(0));
+
+        dbg.start();
+        try {
+            Thread.sleep(1000);
+            for (int n = 0; n < 5; n++) {
+                dbg.proceed();
+                Thread.sleep(200);
+            }
+            Assert.assertFalse(dbg.isContinuing());
+            Assert.assertEquals(6, dbg.getHistorySize());
+
+            HistoryFrame current = dbg.getHistoryFrame(0);
+            Assert.assertSame(dbg.getCurrentElement(), current.getElement());
+            HistoryFrame first = dbg.getHistoryFrame(5);
+            Assert.assertNotSame(current.getElement(), first.getElement());
+            Assert.assertNull(dbg.getHistoryFrame(6));
+            Assert.assertFalse(dbg.isContinuing()); // looking back does not move the thread
+            Assert.assertSame(current.getElement(), dbg.getCurrentElement());
+
+            dbg.continueRun();
+            Thread.sleep(1000);
+            dbg.pause();
+            Thread.sleep(500);
+            Assert.assertTrue(dbg.getSelectedThread().isFrozen());
+            Assert.assertEquals(7, dbg.getHistorySize()); // steps run through are not remembered
+        } finally {
+            dbg.stop();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import kg.apc.emulators.TestJMeterUtils;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExpressionEvaluatorTest {
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+    }
+
+    @Test
+    public void evaluatesInThreadContext() throws Exception {
+        JMeterContext context = JMeterContextService.getContext();
+        JMeterVariables vars = new JMeterVariables();
+        vars.put("a", "1");
+        context.setVariables(vars);
+
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(10000);
+        evaluator.setExpression("a=${a}");
+        Outcome outcome = new Outcome();
+        evaluator.evaluate(context, outcome);
+        outcome.await();
+        assertEquals(Collections.singletonList("a=1"), outcome.results);
+        assertNull(outcome.error);
+    }
+
+    @Test
+    public void abandonsStuckEvaluation() throws Exception {
+        JMeterContext context = JMeterContextService.getContext();
+        StuckVariables vars = new StuckVariables();
+        vars.put("a", "1");
+        context.setVariables(vars);
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(300);
+        try {
+            evaluator.setExpression("${stuck}");
+            Outcome outcome = new Outcome();
+            evaluator.evaluate(context, outcome);
+            outcome.await();
+            assertTrue(outcome.error instanceof TimeoutException);
+
+            evaluator.setExpression("a=${a}"); // stuck worker got replaced
+            Outcome next = new Outcome();
+            evaluator.evaluate(context, next);
+            next.await();
+            assertEquals(Collections.singletonList("a=1"), next.results);
+        } finally {
+            vars.release();
+        }
+    }
+
+    @Test
+    public void dropsStaleResults() throws Exception {
+        JMeterContext context = JMeterContextService.getContext();
+        StuckVariables vars = new StuckVariables();
+        context.setVariables(vars);
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(10000);
+        evaluator.setExpression("${stuck}");
+        Outcome stale = new Outcome();
+        evaluator.evaluate(context, stale);
+
+        evaluator.setExpression("fast");
+        Outcome latest = new Outcome();
+        evaluator.evaluate(context, latest);
+        latest.await();
+        assertEquals(Collections.singletonList("fast"), latest.results);
+
+        vars.release();
+        Thread.sleep(200);
+        assertTrue(stale.results.isEmpty());
+        assertNull(stale.error);
+    }
+
+    @Test
+    public void refusesWhileThreadRuns() throws Exception {
+        JMeterContext context = JMeterContextService.getContext();
+        StuckVariables vars = new StuckVariables();
+        vars.put("a", "1");
+        context.setVariables(vars);
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(10000);
+        try {
+            evaluator.setExpression("${stuck}");
+            Outcome cancelled = new Outcome();
+            evaluator.evaluate(context, cancelled);
+            evaluator.threadResumed();
+
+            evaluator.setExpression("a=${a}");
+            Outcome refused = new Outcome();
+            evaluator.evaluate(context, refused);
+            refused.await();
+            assertTrue(refused.error instanceof IllegalStateException);
+            assertTrue(refused.results.isEmpty());
+
+            evaluator.threadPaused();
+            Outcome next = new Outcome();
+            evaluator.evaluate(context, next);
+            next.await();
+            assertEquals(Collections.singletonList("a=1"), next.results);
+            assertTrue(cancelled.results.isEmpty());
+            assertNull(cancelled.error);
+        } finally {
+            vars.release();
+        }
+    }
+
+    /**
+     * Stands for script function that ignores interrupts
+     */
+    private static class StuckVariables extends JMeterVariables {
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public String get(String key) {
+            if ("stuck".equals(key)) {
+                while (released.getCount() > 0) {
+                    try {
+                        released.await();
+                    } catch (InterruptedException ignored) {
+                        // keep waiting
+                    }
+                }
+                return "released";
+            }
+            return super.get(key);
+        }
+
+        private void release() {
+            released.countDown();
+        }
+    }
+
+    private static class Outcome implements ExpressionEvaluator.Callback<String> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+        private volatile Throwable error;
+
+        @Override
+        public void evaluated(String result, Throwable error) {
+            if (error == null) {
+                results.add(result);
+            } else {
+                this.error = error;
+            }
+            done.countDown();
+        }
+
+        private void await() throws InterruptedException {
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import kg.apc.emulators.TestJMeterUtils;
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.protocol.http.sampler.HTTPSampleResult;
+import org.apache.jmeter.sampler.DebugSampler;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReplayCacheTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void storesByRequest() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        ReplayCache cache = new ReplayCache(tmp.getRoot());
+        DebugSampler sampler = new DebugSampler();
+        sampler.setName("Get / page?");
+        String key = ReplayCache.getRequestKey(sampler);
+        assertNull(cache.get(sampler, key));
+
+        SampleResult res = new SampleResult();
+        res.setResponseData("stored", "UTF-8");
+        res.setResponseCode("200");
+        cache.put(sampler, key, res);
+
+        SampleResult replayed = cache.get(sampler, key);
+        assertNotNull(replayed);
+        assertEquals("stored", replayed.getResponseDataAsString());
+        assertEquals("200", replayed.getResponseCode());
+
+        DebugSampler same = new DebugSampler();
+        same.setName("Get / page?");
+        assertEquals(key, ReplayCache.getRequestKey(same));
+        assertNotNull(cache.get(same, key)); // another instance of the same sampler, as after restart
+
+        same.setProperty("displayJMeterVariables", false);
+        assertNotEquals(key, ReplayCache.getRequestKey(same));
+
+        DebugSampler other = new DebugSampler();
+        other.setName("Other");
+        assertNull(cache.get(other, key));
+    }
+
+    @Test
+    public void storesOnlySuccessful() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        SampleResult failed = new SampleResult();
+        failed.setSuccessful(false);
+        failed.setResponseCode("Non HTTP response code: java.net.ConnectException");
+        SampleResult ok = new SampleResult();
+        ok.setSuccessful(true);
+
+        ReplayCache cache = new ReplayCache(tmp.getRoot());
+        assertFalse(cache.isStorable(failed));
+        assertTrue(cache.isStorable(ok));
+        assertFalse(cache.isStorable(null));
+        assertTrue(new ReplayCache(tmp.getRoot(), true).isStorable(failed));
+    }
+
+    @Test
+    public void readsOnlySampleResults() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        ReplayCache cache = new ReplayCache(tmp.getRoot());
+        DebugSampler sampler = new DebugSampler();
+        sampler.setName("http");
+
+        HTTPSampleResult res = new HTTPSampleResult();
+        res.setURL(new URL("http://localhost/page"));
+        res.setResponseData("page", "UTF-8");
+        res.addAssertionResult(new AssertionResult("check"));
+        res.addSubResult(new HTTPSampleResult());
+        cache.put(sampler, "page", res);
+        SampleResult replayed = cache.get(sampler, "page");
+        assertTrue(replayed instanceof HTTPSampleResult);
+        assertEquals("page", replayed.getResponseDataAsString());
+        assertEquals(1, replayed.getSubResults().length);
+
+        File planted = new File(new File(tmp.getRoot(), ReplayCache.getSamplerId(sampler)), "planted.sample");
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(planted))) {
+            out.writeObject(new ArrayList<>(Collections.singletonList(new File("gadget"))));
+        }
+        assertNull(cache.get(sampler, "planted"));
+    }
+
+    @Test
+    public void refusesOpenDir() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        File shared = tmp.newFolder("shared");
+        Files.setPosixFilePermissions(shared.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+        ReplayCache cache = new ReplayCache(shared);
+        DebugSampler sampler = new DebugSampler();
+        cache.put(sampler, "a", new SampleResult());
+        assertNull(cache.get(sampler, "a"));
+        assertEquals(0, shared.list().length);
+
+        File created = new File(tmp.getRoot(), "new/replay");
+        new ReplayCache(created).put(sampler, "a", new SampleResult());
+        assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(created.toPath()));
+    }
+
+    @Test
+    public void invalidatesSampler() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        ReplayCache cache = new ReplayCache(tmp.getRoot());
+        DebugSampler sampler = new DebugSampler();
+        sampler.setName("first");
+        DebugSampler other = new DebugSampler();
+        other.setName("second");
+
+        cache.put(sampler, "a", new SampleResult());
+        cache.put(sampler, "b", new SampleResult());
+        cache.put(other, "a", new SampleResult());
+
+        assertEquals(2, cache.invalidate(sampler));
+        assertNull(cache.get(sampler, "a"));
+        assertNotNull(cache.get(other, "a"));
+        assertEquals(0, cache.invalidate(sampler));
+    }
+}
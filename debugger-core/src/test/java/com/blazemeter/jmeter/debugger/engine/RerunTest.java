@@ -0,0 +1,93 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import kg.apc.emulators.TestJMeterUtils;
+import org.apache.jmeter.assertions.ResponseAssertion;
+import org.apache.jmeter.extractor.RegexExtractor;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RerunTest {
+    @Test
+    public void rerunsExtractorOnScratchVariables() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        JMeterContext paused = getPausedContext();
+
+        RegexExtractor extractor = new RegexExtractor();
+        extractor.setName("extract");
+        extractor.setRefName("token");
+        extractor.setRegex("id=${digits}");
+        extractor.setTemplate("$1$");
+        extractor.setMatchNumber(1);
+        extractor.setDefaultValue("none");
+
+        Rerun rerun = run(Rerun.of(extractor, paused));
+        Map<String, Object> changes = rerun.getChanges();
+        assertEquals("42", changes.get("token"));
+        assertNull(rerun.getAssertionResult());
+        assertNull(paused.getVariables().get("token")); // thread itself is not touched
+
+        extractor.setRegex("id=(x+)"); // edited element
+        rerun = run(Rerun.of(extractor, paused));
+        assertEquals("none", rerun.getChanges().get("token"));
+    }
+
+    @Test
+    public void rerunsAssertion() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        JMeterContext paused = getPausedContext();
+
+        ResponseAssertion assertion = new ResponseAssertion();
+        assertion.setName("check");
+        assertion.setTestFieldResponseData();
+        assertion.setToContainsType();
+        assertion.addTestString("id=42");
+
+        Rerun rerun = run(Rerun.of(assertion, paused));
+        assertFalse(rerun.getAssertionResult().isFailure());
+        assertTrue(rerun.getChanges().isEmpty());
+
+        assertion.clearTestStrings();
+        assertion.addTestString("id=43");
+        rerun = run(Rerun.of(assertion, paused));
+        assertTrue(rerun.getAssertionResult().isFailure());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void needsPreviousResult() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        JMeterContext paused = getPausedContext();
+        paused.setPreviousResult(null);
+        Rerun.of(new RegexExtractor(), paused);
+    }
+
+    private static JMeterContext getPausedContext() {
+        JMeterContext context = JMeterContextService.getContext();
+        JMeterVariables vars = new JMeterVariables();
+        vars.put("digits", "(\\d+)");
+        context.setVariables(vars);
+        SampleResult result = new SampleResult();
+        result.setResponseData("<a href='/item?id=42'>item</a>", "UTF-8");
+        context.setPreviousResult(result);
+        return context;
+    }
+
+    private static Rerun run(Rerun rerun) {
+        JMeterContext own = JMeterContextService.getContext();
+        JMeterContextService.replaceContext(rerun.getContext());
+        try {
+            return rerun.call();
+        } finally {
+            JMeterContextService.replaceContext(own);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import com.blazemeter.jmeter.debugger.elements.SamplerDebug;
+import kg.apc.emulators.TestJMeterUtils;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class StatusSnapshotTest {
+    @Test
+    public void detachedFromLaterSteps() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        JMeterContext context = JMeterContextService.getContext();
+        JMeterVariables vars = new JMeterVariables();
+        vars.put("a", "1");
+        context.setVariables(vars);
+        DebuggedThread thread = new DebuggedThread(context, "thread", false);
+        SamplerDebug element = new SamplerDebug();
+        thread.setCurrentElement(element);
+
+        StatusSnapshot snapshot = StatusSnapshot.of(thread);
+        vars.put("a", "2");
+        vars.put("b", "3");
+        thread.setCurrentElement(new SamplerDebug());
+
+        assertEquals("thread", snapshot.getThreadName());
+        assertSame(element, snapshot.getElement());
+        assertEquals("1", snapshot.getVariables().get("a"));
+        assertFalse(snapshot.getVariables().containsKey("b"));
+        assertFalse(snapshot.isContinuing());
+    }
+}
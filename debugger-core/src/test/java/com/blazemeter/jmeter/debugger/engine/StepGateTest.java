@@ -0,0 +1,85 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import com.blazemeter.jmeter.debugger.elements.SamplerDebug;
+import com.blazemeter.jmeter.debugger.elements.Wrapper;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class StepGateTest {
+    private static final Logger log = LoggerFactory.getLogger(StepGateTest.class);
+
+    @Test
+    public void releaseBeforeAwait() throws Exception {
+        StepGate gate = new StepGate();
+        gate.release(StepGate.Token.STEP);
+        assertEquals(StepGate.Token.STEP, gate.await());
+        assertFalse(gate.isWaiting());
+    }
+
+    @Test
+    public void resetKeepsStop() throws Exception {
+        StepGate gate = new StepGate();
+        gate.release(StepGate.Token.STOP);
+        gate.reset();
+        assertEquals(StepGate.Token.STOP, gate.await());
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void interrupted() throws Exception {
+        StepGate gate = new StepGate();
+        Thread.currentThread().interrupt();
+        gate.await();
+    }
+
+    @Test
+    public void handsOffEachStep() throws Exception {
+        final int count = 20000;
+        final StepGate gate = new StepGate();
+        final AtomicInteger steps = new AtomicInteger();
+        final StepTrigger trigger = new StepTrigger() {
+            @Override
+            public void stepOn(Wrapper t) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                steps.incrementAndGet();
+            }
+        };
+
+        final Wrapper wrapper = new SamplerDebug();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int n = 0; n < count; n++) {
+                    trigger.stepOn(wrapper);
+                }
+            }
+        });
+        thread.start();
+
+        long start = System.nanoTime();
+        for (int n = 0; n < count; n++) {
+            while (!gate.isWaiting()) {
+                Thread.yield();
+            }
+            gate.release(StepGate.Token.STEP);
+            while (steps.get() <= n) {
+                Thread.yield();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        thread.join();
+
+        double perStep = elapsed / (double) count;
+        log.info("Steps per second: " + (long) (1e9 / perStep) + ", round trip: " + (long) perStep + "ns");
+        assertEquals(count, steps.get()); // every release let exactly one step through, latency is only logged
+    }
+}
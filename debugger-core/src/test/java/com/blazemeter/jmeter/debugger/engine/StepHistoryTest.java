@@ -0,0 +1,106 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import com.blazemeter.jmeter.debugger.elements.SamplerDebug;
+import com.blazemeter.jmeter.debugger.elements.Wrapper;
+import kg.apc.emulators.TestJMeterUtils;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StepHistoryTest {
+    @Test
+    public void reconstructsFromCheckpoints() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        StepHistory history = new StepHistory(Long.MAX_VALUE, 3);
+        VariablesTracker tracker = new VariablesTracker();
+        JMeterVariables vars = new JMeterVariables();
+        Wrapper[] elements = new Wrapper[10];
+        SampleResult[] results = new SampleResult[10];
+        for (int n = 0; n < 10; n++) {
+            vars.put("n", Integer.toString(n));
+            if (n == 4) {
+                vars.put("once", "here");
+            } else {
+                vars.remove("once");
+            }
+            elements[n] = new SamplerDebug();
+            results[n] = new SampleResult();
+            history.add(elements[n], null, results[n], tracker.update(vars), tracker);
+        }
+
+        assertEquals(10, history.size());
+        for (int back = 0; back < 10; back++) {
+            HistoryFrame frame = history.get(back);
+            int n = 9 - back;
+            assertEquals(back, frame.getStepsBack());
+            assertEquals(Integer.toString(n), frame.getVariables().get("n"));
+            assertEquals(n == 4, frame.getVariables().containsKey("once"));
+            assertSame(elements[n], frame.getElement());
+            assertSame(results[n], frame.getPreviousResult());
+        }
+        assertNull(history.get(10));
+        assertNull(history.get(-1));
+    }
+
+    @Test
+    public void evictsOldestCheckpoints() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        StepHistory history = new StepHistory(20000, 10);
+        VariablesTracker tracker = new VariablesTracker();
+        JMeterVariables vars = new JMeterVariables();
+        for (int n = 0; n < 1000; n++) {
+            vars.put("n", Integer.toString(n));
+            history.add(new SamplerDebug(), null, null, tracker.update(vars), tracker);
+        }
+
+        assertTrue(history.getUsed() <= 20000);
+        assertTrue(history.size() < 1000);
+        assertTrue(history.size() >= 10);
+        HistoryFrame oldest = history.get(history.size() - 1);
+        assertEquals(Integer.toString(1000 - history.size()), oldest.getVariables().get("n"));
+        assertNull(history.get(history.size()));
+    }
+
+    @Test
+    public void boundsSingleSegment() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        StepHistory history = new StepHistory(100000, 50);
+        VariablesTracker tracker = new VariablesTracker();
+        JMeterVariables vars = new JMeterVariables();
+        for (int n = 0; n < 40; n++) { // fewer steps than checkpoint interval, big responses
+            vars.put("n", Integer.toString(n));
+            SampleResult res = new SampleResult();
+            res.setBytes(30000L);
+            history.add(new SamplerDebug(), null, res, tracker.update(vars), tracker);
+            assertTrue(history.getUsed() <= 100000);
+        }
+
+        assertTrue(history.size() < 40);
+        assertTrue(history.size() >= 1);
+        HistoryFrame oldest = history.get(history.size() - 1);
+        assertEquals(Integer.toString(40 - history.size()), oldest.getVariables().get("n"));
+        assertEquals("39", history.get(0).getVariables().get("n"));
+
+        SampleResult huge = new SampleResult();
+        huge.setBytes(1000000L);
+        history.add(new SamplerDebug(), null, huge, tracker.update(vars), tracker);
+        assertEquals(1, history.size()); // only the step itself stays
+        assertSame(huge, history.get(0).getPreviousResult());
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        StepHistory history = new StepHistory(0, 10);
+        VariablesTracker tracker = new VariablesTracker();
+        history.add(new SamplerDebug(), null, null, tracker.update(new JMeterVariables()), tracker);
+        assertEquals(0, history.size());
+        assertFalse(history.getUsed() > 0);
+    }
+}
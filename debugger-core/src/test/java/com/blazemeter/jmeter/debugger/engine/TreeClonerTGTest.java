@@ -0,0 +1,310 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import com.blazemeter.jmeter.debugger.elements.DebuggingThreadGroup;
+import com.blazemeter.jmeter.debugger.elements.GenericControllerDebug;
+import com.blazemeter.jmeter.debugger.elements.SamplerDebug;
+import com.blazemeter.jmeter.debugger.elements.TimerDebug;
+import kg.apc.emulators.TestJMeterUtils;
+import org.apache.jmeter.JMeter;
+import org.apache.jmeter.assertions.ResponseAssertion;
+import org.apache.jmeter.control.GenericController;
+import org.apache.jmeter.engine.TreeCloner;
+import org.apache.jmeter.gui.tree.JMeterTreeNode;
+import org.apache.jmeter.sampler.DebugSampler;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.TestPlan;
+import org.apache.jmeter.threads.ThreadGroup;
+import org.apache.jmeter.timers.ConstantTimer;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.HashTreeTraverser;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TreeClonerTGTest {
+    private static final Logger log = LoggerFactory.getLogger(TreeClonerTGTest.class);
+
+    @BeforeClass
+    public static void setUp() {
+        TestJMeterUtils.createJmeterEnv();
+    }
+
+    @Test
+    public void wrapsAndStripsDisabled() {
+        ThreadGroup tg = new ThreadGroup();
+        HashTree plan = generatePlan(tg, 2, 2);
+        DebugSampler disabled = new DebugSampler();
+        disabled.setEnabled(false);
+        HashTree planLevel = plan.getTree(plan.getArray()[0]);
+        planLevel.getTree(planLevel.getArray()[0]).add(disabled);
+
+        TreeClonerTG cloner = new TreeClonerTG(tg);
+        plan.traverse(cloner);
+        HashTree res = cloner.getClonedTree();
+
+        Object testPlan = res.getArray()[0];
+        assertTrue(testPlan instanceof TestPlan);
+        HashTree tgLevel = res.getTree(testPlan);
+        assertEquals(1, tgLevel.size()); // other thread group dropped
+        DebuggingThreadGroup dtg = (DebuggingThreadGroup) tgLevel.getArray()[0];
+        assertTrue(dtg.getOriginal() == tg);
+
+        HashTree ctls = tgLevel.getTree(dtg);
+        assertEquals(2, ctls.size()); // disabled sampler dropped
+        for (Object ctl : ctls.list()) {
+            assertTrue(ctl instanceof GenericControllerDebug);
+            for (Object sampler : ctls.getTree(ctl).list()) {
+                assertTrue(sampler instanceof SamplerDebug);
+                assertFalse(((SamplerDebug) sampler).getWrappedElement() instanceof SamplerDebug);
+                Object[] children = ctls.getTree(ctl).getTree(sampler).getArray();
+                assertTrue(children[0] instanceof TimerDebug);
+            }
+        }
+    }
+
+    @Test
+    public void acceptsConvertedTree() {
+        ThreadGroup tg = new ThreadGroup();
+        HashTree plan = generatePlan(tg, 3, 2);
+        JMeter.convertSubTree(plan);
+
+        TreeClonerTG cloner = new TreeClonerTG(tg);
+        plan.traverse(cloner);
+        HashTree res = cloner.getClonedTree();
+        SearchClass<SamplerDebug> samplers = new SearchClass<>(SamplerDebug.class);
+        res.traverse(samplers);
+        assertEquals(6, samplers.getSearchResults().size());
+    }
+
+    @Test
+    public void instrumentsBreakpointsOnly() {
+        ThreadGroup tg = new ThreadGroup();
+        HashTree plan = generatePlan(tg, 3, 2);
+        JMeter.convertSubTree(plan);
+        HashTree ctls = plan.getTree(plan.getArray()[0]).getTree(tg);
+        GenericController withBP = (GenericController) ctls.getArray()[1];
+        DebugSampler later = (DebugSampler) ctls.getTree(ctls.getArray()[2]).getArray()[0];
+
+        Debugger.toggleBreakpoint(withBP);
+        try {
+            TreeClonerTG cloner = new TreeClonerTG(tg, new Instrumentation(Debugger.getBreakpointsVersion()));
+            plan.traverse(cloner);
+            HashTree res = cloner.getClonedTree();
+            SearchClass<SamplerDebug> samplers = new SearchClass<>(SamplerDebug.class);
+            res.traverse(samplers);
+            assertEquals(2, samplers.getSearchResults().size()); // only under controller with breakpoint
+            SearchClass<GenericControllerDebug> controllers = new SearchClass<>(GenericControllerDebug.class);
+            res.traverse(controllers);
+            assertEquals(1, controllers.getSearchResults().size());
+
+            DebuggingThreadGroup dtg = (DebuggingThreadGroup) res.getTree(res.getArray()[0]).getArray()[0];
+            Instrumentation instrumentation = dtg.getInstrumentation();
+            assertFalse(instrumentation.isOutdated());
+
+            Debugger.toggleBreakpoint(later);
+            assertTrue(instrumentation.isOutdated());
+            HashTree tgTree = res.getTree(res.getArray()[0]).getTree(dtg);
+            ListedHashTree threadTree = new ListedHashTree(dtg);
+            threadTree.set(dtg, tgTree);
+            InstrumentingCloner reinstrument = new InstrumentingCloner(instrumentation);
+            threadTree.traverse(reinstrument);
+            samplers = new SearchClass<>(SamplerDebug.class);
+            reinstrument.getClonedTree().traverse(samplers);
+            assertEquals(3, samplers.getSearchResults().size());
+            boolean found = false;
+            for (SamplerDebug sampler : samplers.getSearchResults()) {
+                found |= sampler.getOriginal() == later;
+            }
+            assertTrue(found);
+
+            DebuggingThreadGroup copy = (DebuggingThreadGroup) reinstrument.getClonedTree().getArray()[0];
+            assertFalse(copy.getInstrumentation().isOutdated());
+            Debugger.toggleBreakpoint(later);
+        } finally {
+            Debugger.toggleBreakpoint(withBP);
+        }
+    }
+
+    @Test
+    public void clonesEachElementOnce() {
+        ThreadGroup tg = new ThreadGroup();
+        HashTree plan = new ListedHashTree();
+        HashTree tgTree = plan.add(new TestPlan()).add(tg);
+        for (int n = 0; n < 10; n++) {
+            tgTree.add(new GenericController()).add(new CountingSampler()).add(new ResponseAssertion());
+        }
+
+        CountingSampler.clones.set(0);
+        prepareSinglePass(plan, tg);
+        assertEquals(10, CountingSampler.clones.get()); // no separate display copy, no second pass
+    }
+
+    /**
+     * Timing comparison, opt-in with -Ddebugger.benchmark=true since shared machines make it noisy
+     */
+    @Test
+    public void benchmark() {
+        Assume.assumeTrue(Boolean.getBoolean("debugger.benchmark"));
+        ThreadGroup tg = new ThreadGroup();
+        HashTree plan = generatePlan(tg, 1000, 12); // ~50k nodes
+
+        for (int n = 0; n < 3; n++) { // warm-up
+            prepareSinglePass(plan, tg);
+            prepareLegacy(plan, tg);
+        }
+
+        long singlePass = Long.MAX_VALUE;
+        long legacy = Long.MAX_VALUE;
+        for (int n = 0; n < 5; n++) {
+            long start = System.nanoTime();
+            prepareSinglePass(plan, tg);
+            singlePass = Math.min(singlePass, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            prepareLegacy(plan, tg);
+            legacy = Math.min(legacy, System.nanoTime() - start);
+        }
+
+        log.info("Tree preparation, single pass: " + singlePass / 1000000 + "ms, previous pipeline: " + legacy / 1000000 + "ms");
+    }
+
+    @Test
+    public void retainedHeap() throws Exception {
+        ThreadGroup tg = new ThreadGroup();
+        HashTree plan = generatePlan(tg, 200, 10);
+        SearchClass<DebugSampler> samplers = new SearchClass<>(DebugSampler.class);
+        plan.traverse(samplers);
+        for (DebugSampler sampler : samplers.getSearchResults()) {
+            for (int n = 0; n < 50; n++) { // like HTTP sampler with many arguments
+                sampler.setProperty("arg" + n, "value " + n);
+            }
+        }
+        JMeter.convertSubTree(plan);
+
+        long start = usedHeap();
+        TreeCloner plainCloner = new TreeCloner(false);
+        plan.traverse(plainCloner);
+        HashTree plain = plainCloner.getClonedTree();
+        long plainSize = usedHeap() - start;
+
+        start = usedHeap();
+        HashTree debug = prepareSinglePass(plan, tg);
+        long debugSize = usedHeap() - start;
+
+        log.info("Retained heap, plain clone: " + plainSize / 1024 + "KB, debug tree: " + debugSize / 1024 + "KB");
+        assertTrue(plain.size() > 0 && debug.size() > 0); // keep both reachable until measured
+        // wrappers used to hold own copy of every property, that was ~1.6 of plain clone
+        assertTrue("Debug tree retains " + debugSize + " vs plain clone " + plainSize, debugSize < plainSize * 1.3);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        for (int n = 0; n < 5; n++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    private HashTree prepareSinglePass(HashTree plan, ThreadGroup tg) {
+        TreeClonerTG cloner = new TreeClonerTG(tg);
+        plan.traverse(cloner);
+        return cloner.getClonedTree();
+    }
+
+    /**
+     * Same steps as before: clone into node tree resolving full path per node,
+     * copy it for display, then convert both copies
+     */
+    private HashTree prepareLegacy(HashTree plan, ThreadGroup tg) {
+        PathCloner cloner = new PathCloner(tg);
+        plan.traverse(cloner);
+        HashTree tree = cloner.newTree;
+
+        TreeCloner display = new TreeCloner();
+        tree.traverse(display);
+        JMeter.convertSubTree(display.getClonedTree());
+        JMeter.convertSubTree(tree);
+        return tree;
+    }
+
+    private static HashTree generatePlan(ThreadGroup tg, int controllers, int samplers) {
+        ListedHashTree plan = new ListedHashTree();
+        HashTree planTree = plan.add(new TestPlan());
+        HashTree tgTree = planTree.add(tg);
+        for (int c = 0; c < controllers; c++) {
+            GenericController ctl = new GenericController();
+            ctl.setName("Controller " + c);
+            HashTree ctlTree = tgTree.add(ctl);
+            for (int s = 0; s < samplers; s++) {
+                DebugSampler sampler = new DebugSampler();
+                sampler.setName("Sampler " + c + "-" + s);
+                HashTree samplerTree = ctlTree.add(sampler);
+                samplerTree.add(new ConstantTimer());
+                samplerTree.add(new ResponseAssertion());
+                samplerTree.add(new ResponseAssertion());
+            }
+        }
+        planTree.add(new ThreadGroup()).add(new DebugSampler());
+        return plan;
+    }
+
+    public static class CountingSampler extends DebugSampler {
+        private static final AtomicInteger clones = new AtomicInteger();
+
+        @Override
+        public Object clone() {
+            clones.incrementAndGet();
+            return super.clone();
+        }
+    }
+
+    private static class PathCloner implements HashTreeTraverser {
+        private final ThreadGroup onlyTG;
+        private final ListedHashTree newTree = new ListedHashTree();
+        private final LinkedList<Object> stack = new LinkedList<>();
+        private int ignoring = 0;
+
+        private PathCloner(ThreadGroup onlyTG) {
+            this.onlyTG = onlyTG;
+        }
+
+        @Override
+        public void addNode(Object node, HashTree subTree) {
+            TestElement te = (TestElement) node;
+            if (ignoring > 0 || (te instanceof ThreadGroup && te != onlyTG)) {
+                ignoring++;
+                return;
+            }
+
+            JMeterTreeNode res = new JMeterTreeNode((TestElement) te.clone(), null);
+            newTree.add(stack, res);
+            stack.addLast(res);
+        }
+
+        @Override
+        public void subtractNode() {
+            if (ignoring > 0) {
+                ignoring--;
+            } else {
+                stack.removeLast();
+            }
+        }
+
+        @Override
+        public void processPath() {
+        }
+    }
+}
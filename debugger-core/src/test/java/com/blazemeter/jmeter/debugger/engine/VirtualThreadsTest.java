@@ -0,0 +1,86 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import kg.apc.emulators.TestJMeterUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class VirtualThreadsTest {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadsTest.class);
+
+    @BeforeClass
+    public static void setUp() {
+        TestJMeterUtils.createJmeterEnv();
+    }
+
+    @Test
+    public void newThread() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        Thread thread = VirtualThreads.newThread(new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, "dbg-1");
+        assertEquals("dbg-1", thread.getName());
+        assertFalse(thread.isAlive());
+        assertEquals(VirtualThreads.isEnabled(), VirtualThreads.isVirtual(thread));
+
+        thread.start();
+        thread.join(1000);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void manyPausedThreads() throws Exception {
+        int count = 500;
+        final List<StepGate> gates = new ArrayList<>(count);
+        final AtomicInteger finished = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            final StepGate gate = new StepGate();
+            gates.add(gate);
+            threads.add(VirtualThreads.newThread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (gate.await() == StepGate.Token.CONTINUE) {
+                            finished.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        log.debug("Interrupted", e);
+                    }
+                }
+            }, "dbg-" + n));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        for (StepGate gate : gates) {
+            while (!gate.isWaiting()) {
+                Thread.sleep(1);
+            }
+        }
+
+        log.info("Paused threads: " + count + ", virtual: " + VirtualThreads.isEnabled());
+        for (StepGate gate : gates) {
+            gate.release(StepGate.Token.CONTINUE);
+        }
+
+        for (Thread thread : threads) {
+            thread.join(5000);
+            assertFalse(thread.isAlive());
+        }
+        assertEquals(count, finished.get());
+    }
+}
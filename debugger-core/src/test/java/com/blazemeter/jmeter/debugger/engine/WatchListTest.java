@@ -0,0 +1,93 @@
+package com.blazemeter.jmeter.debugger.engine;
+
+import kg.apc.emulators.TestJMeterUtils;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WatchListTest {
+    @Test
+    public void evaluatesOnlyStale() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        JMeterContext context = JMeterContextService.getContext();
+        JMeterVariables vars = new JMeterVariables();
+        context.setVariables(vars);
+        vars.put("a", "1");
+        vars.put("b", "2");
+
+        WatchList watches = new WatchList();
+        Watch a = watches.add("a=${a}");
+        Watch ab = watches.add("${__jexl3(${a} + ${b})}");
+        Watch time = watches.add("${__time()}");
+        Watch constant = watches.add("text");
+        assertEquals(Arrays.asList("a", "b"), Arrays.asList(ab.getVariables().toArray()));
+        assertTrue(time.getVariables().isEmpty());
+
+        WatchList.Batch batch = watches.prepare(context, snapshot(vars));
+        assertEquals(4, batch.getWatches().size()); // never evaluated yet
+        Set<Watch> changed = batch.apply(batch.call());
+        assertEquals(4, changed.size());
+        assertEquals("a=1", a.getResult());
+        assertEquals(Arrays.asList(ab, time), watches.prepare(context, snapshot(vars)).getWatches()); // functions
+
+        vars.put("b", "3");
+        vars.put("unrelated", "x");
+        batch = watches.prepare(context, snapshot(vars));
+        List<Watch> stale = batch.getWatches();
+        assertTrue(stale.contains(ab));
+        assertTrue(stale.contains(time));
+        assertFalse(stale.contains(a));
+        assertFalse(stale.contains(constant));
+
+        vars.put("a", "5");
+        batch = watches.prepare(context, snapshot(vars));
+        changed = batch.apply(batch.call());
+        assertTrue(changed.contains(a));
+        assertEquals("a=5", a.getResult());
+    }
+
+    @Test
+    public void functionsAreAlwaysStale() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        JMeterContext context = JMeterContextService.getContext();
+        JMeterVariables vars = new JMeterVariables();
+        context.setVariables(vars);
+        vars.put("i", "1");
+        vars.put("item_1", "first");
+        vars.put("a", "x");
+        vars.put("b", "y");
+
+        WatchList watches = new WatchList();
+        Watch item = watches.add("${__V(item_${i})}");
+        Watch script = watches.add("${__groovy(vars.get(\"a\"))}${b}");
+        Watch clock = watches.add("${__time()}${b}");
+        Watch plain = watches.add("${b}");
+        WatchList.Batch batch = watches.prepare(context, snapshot(vars));
+        batch.apply(batch.call());
+
+        vars.put("item_1", "changed"); // read by computed name, not written in expression
+        vars.put("a", "z"); // read by script
+        batch = watches.prepare(context, snapshot(vars));
+        assertEquals(Arrays.asList(item, script, clock), batch.getWatches());
+        assertFalse(batch.getWatches().contains(plain));
+    }
+
+    private static Map<String, Object> snapshot(JMeterVariables vars) {
+        Map<String, Object> res = new HashMap<>();
+        for (Map.Entry<String, Object> var : vars.entrySet()) {
+            res.put(var.getKey(), var.getValue());
+        }
+        return res;
+    }
+}
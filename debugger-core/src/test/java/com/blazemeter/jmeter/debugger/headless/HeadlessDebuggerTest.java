@@ -0,0 +1,248 @@
+package com.blazemeter.jmeter.debugger.headless;
+
+import com.blazemeter.jmeter.debugger.ClassLoadLog;
+import com.blazemeter.jmeter.debugger.engine.Debugger;
+import kg.apc.emulators.TestJMeterUtils;
+import org.apache.jmeter.engine.StandardJMeterEngine;
+import org.apache.jmeter.save.SaveService;
+import org.apache.jorphan.collections.HashTree;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HeadlessDebuggerTest {
+    private static final Logger log = LoggerFactory.getLogger(HeadlessDebuggerTest.class);
+
+    @Test
+    public void socketSession() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        HashTree tree = SaveService.loadTree(getSample());
+        final HeadlessDebugger server = new HeadlessDebugger(tree, 0);
+        Thread serving = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                server.serve();
+            }
+        });
+        serving.start();
+
+        try (Client stranger = new Client(server.getPort())) {
+            Map<String, Object> refused = stranger.request("evaluate", "expr", "${__time()}");
+            assertEquals(false, refused.get("ok"));
+            assertEquals("Authentication required", refused.get("error"));
+            assertNull("Connection not closed", stranger.in.readLine());
+        }
+        try (Client wrong = new Client(server.getPort())) {
+            assertEquals(false, wrong.request("auth", "token", "guess").get("ok"));
+            assertNull("Connection not closed", wrong.in.readLine());
+        }
+
+        try (Client client = new Client(server.getPort(), server.getToken()); Client other = new Client(server.getPort(), server.getToken())) {
+            int sampler = client.findElement("Debug Sampler 1");
+            Map<String, Object> bp = client.request("breakpoint", "element", sampler);
+            assertEquals(true, ((Map) bp.get("result")).get("breakpoint"));
+
+            client.request("start");
+            client.waitEvent("frozenAt"); // threads start paused
+            client.request("continue");
+            Map<String, Object> frozen = client.waitEvent("frozenAt");
+            assertEquals("Debug Sampler 1", frozen.get("sampler"));
+
+            Map vars = (Map) client.request("variables").get("result");
+            assertNotNull(vars.get("cnt"));
+            assertEquals("cnt=" + vars.get("cnt"), client.request("evaluate", "expr", "cnt=${cnt}").get("result"));
+
+            Map<String, Object> bad = client.request("breakpoint", "element", 100500);
+            assertEquals(false, bad.get("ok"));
+
+            client.request("stop");
+            client.waitEvent("stopped");
+            assertEquals(true, other.request("threads").get("ok"));
+            assertEquals(true, client.request("quit").get("ok"));
+            Map<String, Object> late = other.request("threads");
+            assertEquals(false, late.get("ok"));
+            assertEquals("Debugger is shut down", late.get("error"));
+        } finally {
+            server.shutdown();
+        }
+        serving.join(5000);
+    }
+
+    /**
+     * Runs debugger in separate JVM the way it is run on a server
+     * and checks no GUI classes get loaded on the way to breakpoint.
+     * JMeter itself touches some Swing types while loading utils, JMX and starting threads,
+     * so only components, tree nodes and our GUI classes loaded after debugger and before engine stop count.
+     */
+    @Test
+    public void noGuiClasses() throws Exception {
+        File home = Files.createTempDirectory("jmeter-home").toFile();
+        File bin = new File(home, "bin");
+        assertTrue(bin.mkdir());
+        Files.write(new File(bin, "jmeter.properties").toPath(), "jmeter.save.saveservice.output_format=xml\n".getBytes(StandardCharsets.UTF_8));
+        try (InputStream in = TestJMeterUtils.class.getResourceAsStream("/kg/apc/jmeter/bin/saveservice.properties")) {
+            Files.copy(in, new File(bin, "saveservice.properties").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        long start = System.nanoTime();
+        Process process = ClassLoadLog.start(HeadlessDebugger.class, "-H", home.getAbsolutePath(), getResource("vars.jmx").getAbsolutePath());
+
+        List<String> guiClasses = new ArrayList<>();
+        boolean ours = false;
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        try {
+            String line;
+            String token = null;
+            int port = -1;
+            while (port < 0 && (line = out.readLine()) != null) {
+                ours = ours || Debugger.class.getName().equals(ClassLoadLog.getLoadedClass(line));
+                if (ours) {
+                    collectGui(line, guiClasses);
+                }
+                if (line.startsWith("Token: ")) {
+                    token = line.substring("Token: ".length());
+                }
+                if (line.startsWith("Listening on ")) {
+                    port = Integer.parseInt(line.substring(line.lastIndexOf(':') + 1));
+                }
+            }
+            assertTrue("Debugger did not start", port > 0);
+            assertTrue("Frontend classes not seen", ours);
+            log.info("Headless debugger started in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+
+            try (Client client = new Client(port, token)) {
+                client.request("breakpoint", "element", client.findElement("Debug Sampler ${USER_VAR}"));
+                client.request("start");
+                client.waitEvent("frozenAt");
+                client.request("continue");
+                client.waitEvent("frozenAt");
+                client.request("quit");
+            }
+
+            while ((line = out.readLine()) != null) {
+                ours = ours && !(StandardJMeterEngine.class.getName() + "$StopTest").equals(ClassLoadLog.getLoadedClass(line));
+                if (ours) {
+                    collectGui(line, guiClasses);
+                }
+            }
+            assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+            assertTrue("Engine did not stop", !ours);
+        } finally {
+            process.destroy();
+        }
+        assertEquals(new ArrayList<String>(), guiClasses);
+    }
+
+    private static void collectGui(String line, List<String> guiClasses) {
+        String loaded = ClassLoadLog.getLoadedClass(line);
+        if (loaded != null && (loaded.startsWith("javax.swing.J") || loaded.equals("java.awt.Component")
+                || loaded.equals("javax.swing.tree.DefaultMutableTreeNode")
+                || loaded.matches("com\\.blazemeter\\.\\S*(\\.gui\\.\\S*|Gui)"))) {
+            guiClasses.add(loaded);
+        }
+    }
+
+    private File getSample() {
+        return getResource("sample1.jmx");
+    }
+
+    private File getResource(String name) {
+        File file = new File(getClass().getResource("/com/blazemeter/jmeter/debugger/" + name).getFile());
+        return new File(TestJMeterUtils.fixWinPath(file.getAbsolutePath()));
+    }
+
+    private static class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+        private final List<Map<String, Object>> events = new ArrayList<>();
+        private int lastId = 0;
+
+        private Client(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setSoTimeout(30000);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        }
+
+        private Client(int port, String token) throws IOException {
+            this(port);
+            assertEquals(true, request("auth", "token", token).get("ok"));
+        }
+
+        private Map<String, Object> request(String cmd, Object... args) throws IOException {
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("id", ++lastId);
+            request.put("cmd", cmd);
+            for (int n = 0; n < args.length; n += 2) {
+                request.put((String) args[n], args[n + 1]);
+            }
+            out.write(Json.format(request) + "\n");
+            out.flush();
+
+            while (true) {
+                Map<String, Object> msg = read();
+                if (msg.containsKey("event")) {
+                    events.add(msg);
+                } else {
+                    assertEquals((long) lastId, msg.get("id"));
+                    return msg;
+                }
+            }
+        }
+
+        private Map<String, Object> waitEvent(String name) throws IOException {
+            while (true) {
+                Map<String, Object> msg = events.isEmpty() ? read() : events.remove(0);
+                if (name.equals(msg.get("event"))) {
+                    return msg;
+                }
+            }
+        }
+
+        private int findElement(String name) throws IOException {
+            for (Object item : (List) request("elements").get("result")) {
+                Map element = (Map) item;
+                if (name.equals(element.get("name"))) {
+                    return ((Number) element.get("id")).intValue();
+                }
+            }
+            throw new AssertionError("No element " + name);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, Object> read() throws IOException {
+            String line = in.readLine();
+            assertNotNull("Connection closed", line);
+            return (Map<String, Object>) Json.parse(line);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
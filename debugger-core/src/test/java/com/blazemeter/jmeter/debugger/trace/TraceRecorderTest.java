@@ -0,0 +1,95 @@
+package com.blazemeter.jmeter.debugger.trace;
+
+import com.blazemeter.jmeter.debugger.elements.SamplerDebug;
+import com.blazemeter.jmeter.debugger.elements.TimerDebug;
+import com.blazemeter.jmeter.debugger.engine.VariablesTracker;
+import kg.apc.emulators.TestJMeterUtils;
+import org.apache.jmeter.sampler.DebugSampler;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.timers.ConstantTimer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TraceRecorderTest {
+    @Test
+    public void recordAndRead() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        File file = File.createTempFile("debugger", ".trace");
+        file.deleteOnExit();
+
+        DebugSampler sampler = new DebugSampler();
+        sampler.setName("sampler");
+        ConstantTimer timer = new ConstantTimer();
+        timer.setName("timer");
+        JMeterVariables vars = new JMeterVariables();
+        VariablesTracker tracker = new VariablesTracker();
+        vars.put("a", "1");
+
+        try (TraceRecorder recorder = new TraceRecorder(new TraceJournal(file, 64))) { // tiny window to move it often
+            recorder.record("thread 1", SamplerDebug.class, sampler, null, tracker.update(vars));
+            vars.put("b", "2");
+            recorder.record("thread 1", TimerDebug.class, timer, sampler, tracker.update(vars));
+            recorder.record("thread 1", TimerDebug.class, timer, sampler, tracker.update(vars));
+            vars.remove("a");
+            vars.put("b", "3");
+            for (int n = 0; n < 100; n++) {
+                recorder.record("thread 1", SamplerDebug.class, sampler, sampler, tracker.update(vars));
+            }
+        }
+
+        try (TraceReader reader = new TraceReader(file)) {
+            List<TraceEvent> events = reader.readAll();
+            assertEquals(103, events.size());
+
+            TraceEvent first = events.get(0);
+            assertEquals("thread 1", first.getThread());
+            assertEquals("SamplerDebug", first.getType());
+            assertEquals("sampler", first.getElement());
+            assertEquals(-1, first.getSamplerId());
+            assertNull(first.getSampler());
+            assertEquals(Collections.singletonMap("a", "1"), first.getChanges());
+
+            TraceEvent second = events.get(1);
+            assertEquals("TimerDebug", second.getType());
+            assertEquals("timer", second.getElement());
+            assertEquals("sampler", second.getSampler());
+            assertEquals(first.getElementId(), second.getSamplerId());
+            assertEquals(Collections.singletonMap("b", "2"), second.getChanges());
+            assertTrue(second.getTime() >= first.getTime());
+
+            assertTrue(events.get(2).getChanges().isEmpty());
+            assertEquals("3", events.get(3).getChanges().get("b"));
+            assertTrue(events.get(3).getChanges().containsKey("a"));
+            assertNull(events.get(3).getChanges().get("a"));
+            assertTrue(events.get(102).getChanges().isEmpty());
+        }
+    }
+
+    @Test
+    public void dump() throws Exception {
+        TestJMeterUtils.createJmeterEnv();
+        File file = File.createTempFile("debugger", ".trace");
+        file.deleteOnExit();
+        DebugSampler sampler = new DebugSampler();
+        sampler.setName("sampler");
+        JMeterVariables vars = new JMeterVariables();
+        VariablesTracker tracker = new VariablesTracker();
+        vars.put("var", "value");
+        try (TraceRecorder recorder = new TraceRecorder(file)) {
+            recorder.record("thread 1", SamplerDebug.class, sampler, sampler, tracker.update(vars));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(1, TraceDump.dump(file, new PrintStream(out, true, "UTF-8")));
+        assertTrue(out.toString("UTF-8"), out.toString("UTF-8").contains("thread 1 SamplerDebug \"sampler\" sampler \"sampler\" var=value"));
+    }
+}
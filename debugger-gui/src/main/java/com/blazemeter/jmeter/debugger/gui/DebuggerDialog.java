@@ -0,0 +1,682 @@
+package com.blazemeter.jmeter.debugger.gui;
+
+import com.blazemeter.jmeter.debugger.elements.AssertionDebug;
+import com.blazemeter.jmeter.debugger.elements.DebuggingThreadGroup;
+import com.blazemeter.jmeter.debugger.elements.OriginalLink;
+import com.blazemeter.jmeter.debugger.elements.PostProcessorDebug;
+import com.blazemeter.jmeter.debugger.elements.ThreadGroupWrapper;
+import com.blazemeter.jmeter.debugger.elements.Wrapper;
+import com.blazemeter.jmeter.debugger.engine.DebuggedThread;
+import com.blazemeter.jmeter.debugger.engine.Debugger;
+import com.blazemeter.jmeter.debugger.engine.DebuggerFrontend;
+import com.blazemeter.jmeter.debugger.engine.HistoryFrame;
+import com.blazemeter.jmeter.debugger.engine.ReplayCache;
+import com.blazemeter.jmeter.debugger.engine.SearchClass;
+import com.blazemeter.jmeter.debugger.engine.StatusSnapshot;
+import com.blazemeter.jmeter.debugger.engine.StampedTreeProvider;
+import org.apache.jmeter.control.ReplaceableController;
+import org.apache.jmeter.gui.GuiPackage;
+import org.apache.jmeter.gui.JMeterGUIComponent;
+import org.apache.jmeter.gui.tree.JMeterTreeModel;
+import org.apache.jmeter.gui.tree.JMeterTreeNode;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.TestPlan;
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.SearchByClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.event.TreeSelectionEvent;
+import javax.swing.tree.TreePath;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ItemEvent;
+import java.awt.event.ItemListener;
+import java.io.File;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class DebuggerDialog extends DebuggerDialogBase implements DebuggerFrontend, StampedTreeProvider {
+    private static final Logger log = LoggerFactory.getLogger(DebuggerDialog.class);
+
+    private boolean savedDirty = false;
+    private final Timer logpointsTimer = new Timer(250, new LogpointsFlush());
+    private boolean updatingThreads = false;
+    private int stepsBack = 0;
+    private final AtomicReference<StatusSnapshot> pendingStatus = new AtomicReference<>(); // single-slot mailbox
+    private final Runnable statusConsumer = new StatusConsumer();
+    private final Runnable showContinuing = new ShowContinuing();
+    private final Map<Object, TreePath> treePaths = new IdentityHashMap<>(); // element, wrapped clone and original to display node
+    private volatile JMeterTreeNode currentNode; // highlight state, computed once per step
+    private volatile JMeterTreeNode samplerNode;
+    private JMeterGUIComponent displayedGui;
+    private TestElement displayedElement;
+    private static final AtomicLong modificationStamp = new AtomicLong(); // prepared trees are cached across dialog openings
+    private static final TreeModelListener planChanges = new PlanChanges(); // stays registered while dialog is closed
+    private static JMeterTreeModel listenedModel;
+
+    public DebuggerDialog() {
+        super();
+        start.addActionListener(new StartDebugging());
+        stop.addActionListener(new StopDebugging());
+        step.addActionListener(new StepOver());
+        pauseContinue.addActionListener(new PauseContinue());
+        rerun.addActionListener(new RerunElement());
+        stepBack.addActionListener(new StepBack(1));
+        stepForward.addActionListener(new StepBack(-1));
+        tgCombo.addItemListener(new ThreadGroupChoiceChanged());
+        threadCombo.addItemListener(new ThreadChoiceChanged());
+        replay.addItemListener(new ReplayToggled());
+    }
+
+    @Override
+    public void componentShown(ComponentEvent e) {
+        log.debug("Showing dialog");
+        if (GuiPackage.getInstance() != null) {
+            savedDirty = GuiPackage.getInstance().isDirty();
+            listenPlanChanges(GuiPackage.getInstance().getTreeModel());
+        }
+        this.debugger = new Debugger(this, this);
+        debugger.setReplayDir(getReplayDir());
+        tgCombo.removeAllItems();
+        for (AbstractThreadGroup group : debugger.getThreadGroups()) {
+            tgCombo.addItem(group);
+        }
+        tgCombo.setEnabled(tgCombo.getItemCount() > 0);
+        start.setEnabled(tgCombo.getItemCount() > 0);
+        start.requestFocus();
+    }
+
+    @Override
+    public void componentHidden(ComponentEvent e) {
+        log.debug("Closing dialog");
+        debugger.stop();
+        if (GuiPackage.getInstance() != null) {
+            GuiPackage.getInstance().setDirty(savedDirty);
+        }
+    }
+
+    @Override
+    public long getModificationStamp() {
+        return modificationStamp.get();
+    }
+
+    private static void touchPlan() {
+        modificationStamp.incrementAndGet();
+    }
+
+    /**
+     * Follows plan edits for the life of the GUI, so the stamp changes only on real edits
+     */
+    private static void listenPlanChanges(JMeterTreeModel model) {
+        if (model != listenedModel) {
+            if (listenedModel != null) {
+                listenedModel.removeTreeModelListener(planChanges);
+            }
+            model.addTreeModelListener(planChanges);
+            listenedModel = model;
+            touchPlan(); // edits made before were not seen
+        }
+    }
+
+    @Override
+    public HashTree getTestTree() {
+        GuiPackage gui = GuiPackage.getInstance();
+        return PlainTreeConverter.convert(gui.getTreeModel().getTestPlan());
+    }
+
+    private void toggleControls(boolean state) {
+        tgCombo.setEnabled(state);
+        threadCount.setEnabled(state);
+        replay.setEnabled(state);
+        threadCombo.setEnabled(!state);
+        start.setEnabled(state);
+        stop.setEnabled(!state);
+        pauseContinue.setEnabled(!state);
+        evaluatePanel.setEnabled(!state);
+        watchPanel.setEnabled(!state);
+        rerunPanel.setEnabled(!state);
+        rerun.setEnabled(false);
+    }
+
+    private void refreshVars(Set<Map.Entry<String, Object>> vars) {
+        varsTableModel.update(vars);
+    }
+
+    /**
+     * Shows variables and element of selected thread as they were given number of steps back, thread stays frozen
+     */
+    private void showHistory(int back) {
+        HistoryFrame frame = debugger.getHistoryFrame(back);
+        if (frame == null) {
+            return;
+        }
+
+        stepsBack = back;
+        if (back == 0) {
+            DebuggedThread thread = debugger.getSelectedThread();
+            if (thread != null && thread.getContext().getVariables() != null) {
+                refreshVars(thread.getContext().getVariables().entrySet());
+            }
+        } else {
+            refreshVars(frame.getVariables().entrySet());
+        }
+        selectTargetInTree(frame.getElement(), frame.getSampler());
+        setHighlighted(frame.getElement(), frame.getSampler());
+        evaluatePanel.setEnabled(back == 0);
+        watchPanel.setEnabled(back == 0);
+        refreshHistoryControls();
+
+        SampleResult prev = frame.getPreviousResult();
+        if (back == 0) {
+            historyLabel.setText("");
+        } else {
+            historyLabel.setText(" " + back + " step(s) back" + (prev == null ? "" : ", previous result: " + prev.getSampleLabel() + " " + prev.getResponseCode()));
+        }
+    }
+
+    private void refreshHistoryControls() {
+        boolean frozen = debugger != null && !debugger.isContinuing() && debugger.getCurrentElement() != null;
+        stepBack.setEnabled(frozen && stepsBack + 1 < debugger.getHistorySize());
+        stepForward.setEnabled(frozen && stepsBack > 0);
+    }
+
+    @Override
+    protected void refreshProperties() {
+        propsTableModel.refresh(JMeterUtils.getJMeterProperties());
+    }
+
+    @Override
+    protected void forgetReplayed(TestElement sampler) {
+        int count = debugger.forgetReplayed(sampler);
+        log.info("Forgot " + count + " replayed response(s) of " + sampler.getName());
+    }
+
+    private File getReplayDir() {
+        if (!replay.isSelected()) {
+            return null;
+        }
+        return new File(JMeterUtils.getPropDefault("debugger.replay.dir", ReplayCache.getDefaultDir().getPath()));
+    }
+
+    private void selectTargetInTree(Wrapper dbgElm, Sampler sampler) {
+        TreePath treePath = getTreePathFor(dbgElm);
+        if (treePath == null) {
+            log.debug("Did not find tree path for element");
+        } else {
+            if (treePath.equals(tree.getSelectionPath())) {
+                tree.setSelectionPath(treePath.getParentPath());
+            }
+            tree.setSelectionPath(treePath);
+        }
+
+        if (sampler != null) {
+            TreePath samplerPath = getTreePathFor(sampler);
+            if (samplerPath != null) {
+                log.debug("Expanding: " + samplerPath);
+                tree.expandPath(samplerPath.getParentPath());
+            }
+        }
+        
+        tree.repaint();
+    }
+
+    /**
+     * Looks up wrapped element first, then wrapper itself (case for wrapped controllers),
+     * then original for elements of secondary threads, since display tree holds first thread's copy
+     */
+    private TreePath getTreePathFor(Object element) {
+        TreePath path = null;
+        if (element instanceof Wrapper) {
+            path = treePaths.get(((Wrapper) element).getWrappedElement());
+        }
+        if (path == null) {
+            path = treePaths.get(element);
+        }
+        if (path == null && element instanceof OriginalLink) {
+            path = treePaths.get(((OriginalLink) element).getOriginal());
+        }
+        return path;
+    }
+
+    private void setHighlighted(Wrapper element, Sampler sampler) {
+        TreePath path = element == null ? null : getTreePathFor(element);
+        currentNode = path == null ? null : (JMeterTreeNode) path.getLastPathComponent();
+        path = sampler == null ? null : getTreePathFor(sampler);
+        samplerNode = path == null ? null : (JMeterTreeNode) path.getLastPathComponent();
+    }
+
+    private void selectThreadGroup(AbstractThreadGroup tg) {
+        debugger.selectThreadGroup(tg);
+        treeModel.clearTestPlan();
+        treePaths.clear();
+        setHighlighted(null, null);
+        HashTree selectedTree = debugger.getSelectedTree();
+
+        // Hack to resolve ModuleControllers from JMeter.java
+        SearchClass<ReplaceableController> replaceableControllers = new SearchClass<>(ReplaceableController.class);
+        selectedTree.traverse(replaceableControllers);
+        Collection<ReplaceableController> replaceableControllersRes = replaceableControllers.getSearchResults();
+        for (ReplaceableController replaceableController : replaceableControllersRes) {
+            replaceableController.resolveReplacementSubTree((JMeterTreeNode) treeModel.getRoot());
+        }
+
+        JMeterTreeNode root = (JMeterTreeNode) treeModel.getRoot();
+        addDisplayNodes(selectedTree, root);
+        treeModel.nodeStructureChanged(root);
+
+        // select TG for visual convenience
+        SearchByClass<DebuggingThreadGroup> tgs = new SearchByClass<>(DebuggingThreadGroup.class);
+        selectedTree.traverse(tgs);
+        for (DebuggingThreadGroup forSel : tgs.getSearchResults()) {
+            Wrapper<AbstractThreadGroup> wtg = new ThreadGroupWrapper();
+            wtg.setWrappedElement(forSel);
+            selectTargetInTree(wtg, null);
+        }
+    }
+
+    /**
+     * Display tree shares elements with the prepared tree, nodes are linked directly without GUI round trip per element
+     */
+    private void addDisplayNodes(HashTree subTree, JMeterTreeNode parent) {
+        for (Object key : subTree.list()) {
+            TestElement te = (TestElement) key;
+            JMeterTreeNode node;
+            if (te instanceof TestPlan) {
+                node = (JMeterTreeNode) ((JMeterTreeNode) treeModel.getRoot()).getChildAt(0);
+                node.setUserObject(te);
+            } else {
+                node = new JMeterTreeNode(te, treeModel);
+                parent.add(node);
+            }
+            indexNode(te, node);
+            addDisplayNodes(subTree.getTree(te), node);
+        }
+    }
+
+    private void indexNode(TestElement te, JMeterTreeNode node) {
+        TreePath path = new TreePath(node.getPath());
+        treePaths.put(te, path);
+        if (te instanceof Wrapper) {
+            Object wrapped = ((Wrapper) te).getWrappedElement();
+            if (wrapped != null && !treePaths.containsKey(wrapped)) {
+                treePaths.put(wrapped, path);
+            }
+        }
+        if (te instanceof OriginalLink) {
+            Object original = ((OriginalLink) te).getOriginal();
+            if (original != null && !treePaths.containsKey(original)) {
+                treePaths.put(original, path);
+            }
+        }
+    }
+
+    @Override
+    public void highlightNode(Component component, JMeterTreeNode node, TestElement mc) {
+        component.setFont(component.getFont().deriveFont(~Font.BOLD).deriveFont(~Font.ITALIC));
+
+        TestElement userObject = (TestElement) node.getUserObject();
+        if (Debugger.isBreakpoint(debugger == null ? userObject : debugger.resolveOriginal(userObject))) {
+            component.setForeground(Color.RED);
+        }
+
+        if (node == currentNode) {
+            component.setFont(component.getFont().deriveFont(Font.BOLD));
+            component.setForeground(Color.BLUE);
+        }
+
+        if (node == samplerNode) {
+            Font font = component.getFont();
+            component.setFont(font.deriveFont(font.getStyle() | Font.ITALIC));
+            component.setForeground(Color.BLUE);
+        }
+    }
+
+    @Override
+    public void valueChanged(TreeSelectionEvent treeSelectionEvent) {
+        JMeterTreeNode node = (JMeterTreeNode) treeSelectionEvent.getPath().getLastPathComponent();
+        TestElement wrpElm = node.getTestElement();
+        if (wrpElm instanceof OriginalLink) {
+            wrpElm = (TestElement) ((OriginalLink) wrpElm).getOriginal();
+        }
+
+        displayElementGui(wrpElm);
+    }
+
+    private synchronized void displayElementGui(TestElement wrpElm) {
+        GuiPackage gui = GuiPackage.getInstance();
+        if (gui != null) {
+            JMeterGUIComponent egui = gui.getGui(wrpElm);
+            displayedGui = egui;
+            displayedElement = wrpElm;
+            egui.configure(wrpElm);
+            egui.modifyTestElement(wrpElm);
+            elementContainer.removeAll();
+            if (egui instanceof Component) {
+//                egui.setEnabled(false);
+                elementContainer.add((Component) egui, BorderLayout.CENTER);
+            }
+            elementContainer.updateUI();
+        }
+    }
+
+    /**
+     * Writes edits made in element pane into the element, so re-run sees them
+     */
+    private synchronized void saveDisplayedElement() {
+        if (displayedGui != null) {
+            displayedGui.modifyTestElement(displayedElement);
+            touchPlan();
+        }
+    }
+
+    @Override
+    public void started() {
+        evaluatePanel.threadResumed(); // nothing to evaluate against until first pause
+        watchPanel.threadResumed();
+        loggerPanel.clear();
+        threadCombo.removeAllItems();
+        toggleControls(false);
+        logpointsTimer.start();
+    }
+
+    @Override
+    public void stopped() {
+        logpointsTimer.stop();
+        flushLogpoints();
+        if (debugger != null && debugger.getTraceFile() != null) {
+            tracePanel.load(debugger.getTraceFile());
+        }
+        threadCombo.removeAllItems();
+        toggleControls(true);
+        setHighlighted(null, null);
+        tree.repaint();
+        stepsBack = 0;
+        historyLabel.setText("");
+        refreshHistoryControls();
+        elementContainer.removeAll();
+    }
+
+    private void refreshThreads() {
+        if (debugger == null) {
+            return;
+        }
+
+        List<DebuggedThread> threads = debugger.getThreads();
+        updatingThreads = true;
+        try {
+            if (threads.size() != threadCombo.getItemCount()) {
+                threadCombo.removeAllItems();
+                for (DebuggedThread thread : threads) {
+                    threadCombo.addItem(thread);
+                }
+            }
+
+            DebuggedThread selected = debugger.getSelectedThread();
+            if (selected != null && threadCombo.getSelectedItem() != selected) {
+                threadCombo.setSelectedItem(selected);
+            }
+        } finally {
+            updatingThreads = false;
+        }
+    }
+
+    private void flushLogpoints() {
+        if (debugger == null) {
+            return;
+        }
+
+        List<String> messages = debugger.drainLogpoints();
+        if (!messages.isEmpty()) {
+            StringBuilder text = new StringBuilder();
+            for (String msg : messages) {
+                text.append(msg).append('\n');
+            }
+            loggerPanel.append(text.toString());
+        }
+    }
+
+    /**
+     * Runs on debugged thread: takes its sampler and leaves controls and tree selection to EDT
+     */
+    @Override
+    public void frozenAt(Wrapper wrapper) {
+        SwingUtilities.invokeLater(new ShowFrozen(wrapper, debugger.getCurrentSampler()));
+    }
+
+    private void showFrozen(Wrapper wrapper, Sampler sampler) {
+        pauseContinue.setText("Continue");
+        pauseContinue.setIcon(DebuggerMenuItem.getContinueIcon());
+
+        step.setEnabled(true);
+        rerun.setEnabled(wrapper instanceof PostProcessorDebug || wrapper instanceof AssertionDebug);
+        setHighlighted(wrapper, sampler);
+        selectTargetInTree(wrapper, sampler);
+        stepsBack = 0;
+        historyLabel.setText("");
+        refreshHistoryControls();
+    }
+
+    /**
+     * Runs on debugged thread: only drops the snapshot into the mailbox, EDT picks up the latest one
+     */
+    @Override
+    public void statusRefresh(StatusSnapshot snapshot) {
+        if (!snapshot.isContinuing()) {
+            evaluatePanel.threadPaused();
+            watchPanel.threadPaused();
+        }
+        if (pendingStatus.getAndSet(snapshot) == null) {
+            SwingUtilities.invokeLater(statusConsumer);
+        }
+    }
+
+    private void applyStatus(StatusSnapshot snapshot) {
+        try {
+            refreshVars(snapshot.getVariables().entrySet());
+            if (isPropertiesVisible()) {
+                refreshProperties();
+            }
+        } catch (Throwable e) {
+            log.warn("Problem refreshing status pane", e);
+        }
+        evaluatePanel.refresh(snapshot.getContext(), snapshot.isContinuing());
+        watchPanel.refresh(snapshot);
+        tree.repaint();
+    }
+
+    /**
+     * Runs on debugged thread before it moves on, evaluations must stop touching its variables right away,
+     * controls are updated on EDT
+     */
+    @Override
+    public void continuing() {
+        evaluatePanel.threadResumed();
+        watchPanel.threadResumed();
+        SwingUtilities.invokeLater(showContinuing);
+    }
+
+    private void showContinuing() {
+        // to prevent buttons "jumping"
+        pauseContinue.setMinimumSize(pauseContinue.getSize());
+        pauseContinue.setPreferredSize(pauseContinue.getSize());
+        pauseContinue.setSize(pauseContinue.getSize());
+
+        pauseContinue.setText("Pause");
+        pauseContinue.setIcon(DebuggerMenuItem.getPauseIcon());
+        step.setEnabled(false);
+        rerun.setEnabled(false);
+        stepBack.setEnabled(false);
+        stepForward.setEnabled(false);
+        historyLabel.setText("");
+    }
+
+    private class StatusConsumer implements Runnable {
+        @Override
+        public void run() {
+            StatusSnapshot snapshot = pendingStatus.getAndSet(null);
+            if (snapshot != null) {
+                applyStatus(snapshot);
+            }
+        }
+    }
+
+    private class ShowFrozen implements Runnable {
+        private final Wrapper wrapper;
+        private final Sampler sampler;
+
+        private ShowFrozen(Wrapper wrapper, Sampler sampler) {
+            this.wrapper = wrapper;
+            this.sampler = sampler;
+        }
+
+        @Override
+        public void run() {
+            showFrozen(wrapper, sampler);
+        }
+    }
+
+    private class ShowContinuing implements Runnable {
+        @Override
+        public void run() {
+            showContinuing();
+        }
+    }
+
+    private class ThreadGroupChoiceChanged implements ItemListener {
+        @Override
+        public void itemStateChanged(ItemEvent event) {
+            if (event.getStateChange() == ItemEvent.SELECTED) {
+                log.debug("Item choice changed: " + event.getItem());
+                if (event.getItem() instanceof AbstractThreadGroup) {
+                    selectThreadGroup((AbstractThreadGroup) event.getItem());
+                }
+            }
+        }
+    }
+
+    private class ThreadChoiceChanged implements ItemListener {
+        @Override
+        public void itemStateChanged(ItemEvent event) {
+            if (!updatingThreads && event.getStateChange() == ItemEvent.SELECTED) {
+                log.debug("Thread choice changed: " + event.getItem());
+                debugger.selectThread((DebuggedThread) event.getItem());
+            }
+        }
+    }
+
+    private class LogpointsFlush implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            flushLogpoints();
+            refreshThreads();
+        }
+    }
+
+    private static class PlanChanges implements TreeModelListener {
+        @Override
+        public void treeNodesChanged(TreeModelEvent e) {
+            touchPlan();
+        }
+
+        @Override
+        public void treeNodesInserted(TreeModelEvent e) {
+            touchPlan();
+        }
+
+        @Override
+        public void treeNodesRemoved(TreeModelEvent e) {
+            touchPlan();
+        }
+
+        @Override
+        public void treeStructureChanged(TreeModelEvent e) {
+            touchPlan();
+        }
+    }
+
+    private class ReplayToggled implements ItemListener {
+        @Override
+        public void itemStateChanged(ItemEvent event) {
+            if (debugger != null) {
+                debugger.setReplayDir(getReplayDir());
+            }
+        }
+    }
+
+    private class StartDebugging implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            debugger.setThreadCount((Integer) threadCount.getValue());
+            debugger.setTraceFile(tracePanel.getRecordFile());
+            debugger.start();
+        }
+    }
+
+    private class RerunElement implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            saveDisplayedElement();
+            statusTabs.setSelectedComponent(rerunPanel);
+            try {
+                rerunPanel.run(debugger.getRerun());
+            } catch (IllegalArgumentException | IllegalStateException ex) {
+                log.debug("Cannot re-run", ex);
+                rerunPanel.showError(ex.getMessage());
+            }
+        }
+    }
+
+    private class StepOver implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            debugger.proceed();
+        }
+    }
+
+    private class PauseContinue implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent actionEvent) {
+            if (debugger.isContinuing()) {
+                debugger.pause();
+            } else {
+                debugger.continueRun();
+            }
+        }
+    }
+
+    private class StepBack implements ActionListener {
+        private final int delta;
+
+        private StepBack(int delta) {
+            this.delta = delta;
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            showHistory(Math.max(0, stepsBack + delta));
+        }
+    }
+
+    private class StopDebugging implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            debugger.stop();
+        }
+    }
+
+}
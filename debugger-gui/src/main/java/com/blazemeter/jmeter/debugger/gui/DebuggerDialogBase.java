@@ -1,22 +1,27 @@
 package com.blazemeter.jmeter.debugger.gui;
 
+import com.blazemeter.jmeter.debugger.engine.DebuggedThread;
 import com.blazemeter.jmeter.debugger.engine.Debugger;
 import org.apache.jmeter.config.ConfigElement;
 import org.apache.jmeter.gui.GuiPackage;
-import org.apache.jmeter.gui.LoggerPanel;
 import org.apache.jmeter.gui.tree.JMeterTreeModel;
 import org.apache.jmeter.gui.tree.JMeterTreeNode;
-import org.apache.jmeter.gui.util.PowerTableModel;
+import org.apache.jmeter.samplers.Sampler;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.TestPlan;
 import org.apache.jmeter.testelement.WorkBench;
 import org.apache.jmeter.threads.AbstractThreadGroup;
 import org.apache.jmeter.threads.ThreadGroup;
+import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.gui.ComponentUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.event.TreeSelectionListener;
 import javax.swing.tree.TreePath;
 import java.awt.*;
@@ -36,18 +41,31 @@ abstract public class DebuggerDialogBase extends JDialog implements ComponentLis
     private static final Logger log = LoggerFactory.getLogger(DebuggerDialogBase.class);
 
 
+    protected Debugger debugger = null;
     protected JComboBox<AbstractThreadGroup> tgCombo = new JComboBox<>();
+    protected JSpinner threadCount = new JSpinner(new SpinnerNumberModel(1, 1, 1000, 1));
+    protected JCheckBox replay = new JCheckBox("Replay", JMeterUtils.getProperty("debugger.replay.dir") != null);
+    protected JComboBox<DebuggedThread> threadCombo = new JComboBox<>();
     protected JTree tree;
     protected JMeterTreeModel treeModel;
     protected JButton start = new JButton("Start");
     protected JButton step = new JButton("Step Over");
     protected JButton stop = new JButton("Stop");
     protected JButton pauseContinue = new JButton("Continue");
-    protected LoggerPanel loggerPanel;
-    protected PowerTableModel varsTableModel;
-    protected PowerTableModel propsTableModel;
+    protected JButton rerun = new JButton("Re-run");
+    protected JButton stepBack = new JButton("Step Back");
+    protected JButton stepForward = new JButton("Step Forward");
+    protected JLabel historyLabel = new JLabel();
+    protected LoggerPanelWrapping loggerPanel;
+    protected VariablesTableModel varsTableModel;
+    protected PropertiesTableModel propsTableModel;
+    protected JTabbedPane statusTabs;
+    protected Component propsTab;
     protected JPanel elementContainer;
     protected EvaluatePanel evaluatePanel;
+    protected WatchPanel watchPanel;
+    protected RerunPanel rerunPanel;
+    protected TracePanel tracePanel;
 
     public DebuggerDialogBase() {
         super((JFrame) null, "Step-by-Step Debugger", true);
@@ -76,12 +94,30 @@ abstract public class DebuggerDialogBase extends JDialog implements ComponentLis
     }
 
     private Component getStatusPane() {
-        JTabbedPane tabs = new JTabbedPane();
-        tabs.add("Variables", getVariablesTab());
-        tabs.add("JMeter Properties", getPropertiesTab());
-        tabs.add("Evaluate", getEvaluateTab());
-        tabs.add("Log", getLogTab());
-        return tabs;
+        statusTabs = new JTabbedPane();
+        statusTabs.add("Variables", getVariablesTab());
+        propsTab = getPropertiesTab();
+        statusTabs.add("JMeter Properties", propsTab);
+        statusTabs.add("Evaluate", getEvaluateTab());
+        statusTabs.add("Watches", getWatchesTab());
+        statusTabs.add("Re-run", getRerunTab());
+        statusTabs.add("Log", getLogTab());
+        statusTabs.add("Trace", getTraceTab());
+        statusTabs.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                if (isPropertiesVisible()) {
+                    refreshProperties();
+                }
+            }
+        });
+        return statusTabs;
+    }
+
+    private Component getRerunTab() {
+        rerunPanel = new RerunPanel();
+        rerunPanel.setEnabled(false);
+        return rerunPanel;
     }
 
     private Component getEvaluateTab() {
@@ -90,18 +126,71 @@ abstract public class DebuggerDialogBase extends JDialog implements ComponentLis
         return evaluatePanel;
     }
 
+    private Component getWatchesTab() {
+        watchPanel = new WatchPanel();
+        watchPanel.setEnabled(false);
+        return watchPanel;
+    }
+
+    private Component getTraceTab() {
+        tracePanel = new TracePanel();
+        return tracePanel;
+    }
+
     private Component getVariablesTab() {
-        varsTableModel = new HighlightTableModel(new String[]{"Name", "Value"}, new Class[]{String.class, String.class});
-        JTable table = new HighlightTable(varsTableModel);
-        return new JScrollPane(table);
+        varsTableModel = new VariablesTableModel();
+        return getFilteredTable(varsTableModel);
     }
 
     private Component getPropertiesTab() {
-        propsTableModel = new HighlightTableModel(new String[]{"Name", "Value"}, new Class[]{String.class, String.class});
-        JTable table = new HighlightTable(propsTableModel);
-        return new JScrollPane(table);
+        propsTableModel = new PropertiesTableModel();
+        return getFilteredTable(propsTableModel);
+    }
+
+    private Component getFilteredTable(final VariablesTableModel model) {
+        final JTextField filter = new JTextField();
+        filter.setToolTipText("Part of name to show, ^ in front matches beginning of name");
+        filter.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                model.setFilter(filter.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                model.setFilter(filter.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                model.setFilter(filter.getText());
+            }
+        });
+
+        JPanel filterPanel = new JPanel(new BorderLayout());
+        filterPanel.add(new JLabel("Filter: "), BorderLayout.WEST);
+        filterPanel.add(filter, BorderLayout.CENTER);
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(filterPanel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(new HighlightTable(model)), BorderLayout.CENTER);
+        return panel;
+    }
+
+
+    protected boolean isPropertiesVisible() {
+        return statusTabs.getSelectedComponent() == propsTab && propsTab.isShowing();
     }
 
+    /**
+     * Called when properties tab gets selected
+     */
+    protected abstract void refreshProperties();
+
+    /**
+     * Called from tree popup, next runs send requests of the sampler for real
+     */
+    protected abstract void forgetReplayed(TestElement sampler);
 
     private Component getLogTab() {
         loggerPanel = new LoggerPanelWrapping();
@@ -134,6 +223,11 @@ abstract public class DebuggerDialogBase extends JDialog implements ComponentLis
 
         res.add(tgCombo);
         tgCombo.setRenderer(new ThreadGroupItemRenderer(tgCombo.getRenderer()));
+        res.add(new JLabel(" Threads: "));
+        res.add(threadCount);
+        threadCount.setMaximumSize(new Dimension(60, 26));
+        res.add(replay);
+        replay.setToolTipText("Serve stored sampler responses instead of sending requests again");
 
         AbstractAction toggle = new AbstractAction() {
             @Override
@@ -191,6 +285,24 @@ abstract public class DebuggerDialogBase extends JDialog implements ComponentLis
             }
         });
 
+        res.add(rerun);
+        rerun.setEnabled(false);
+        rerun.setToolTipText("Run paused post-processor or assertion again, as edited, against previous sample result");
+
+        res.addSeparator();
+        res.add(stepBack);
+        stepBack.setEnabled(false);
+        stepBack.setToolTipText("Show state of paused thread one step earlier");
+        res.add(stepForward);
+        stepForward.setEnabled(false);
+        stepForward.setToolTipText("Show state one step later, back to current step");
+        res.add(historyLabel);
+
+        res.addSeparator();
+        res.add(new JLabel("Thread: "));
+        res.add(threadCombo);
+        threadCombo.setEnabled(false);
+
         res.addSeparator();
         JButton help = new JButton("Help", DebuggerMenuItem.getHelpIcon());
         help.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
@@ -244,6 +356,9 @@ abstract public class DebuggerDialogBase extends JDialog implements ComponentLis
                         }
                         final JMeterTreeNode node = (JMeterTreeNode) currentPath.getLastPathComponent();
                         TestElement te = (TestElement) node.getUserObject();
+                        if (debugger != null) {
+                            te = debugger.resolveOriginal(te); // breakpoint-only mode leaves clones unwrapped
+                        }
                         if (te instanceof ConfigElement || te instanceof TestPlan || te instanceof ThreadGroup || te instanceof WorkBench) {
                             log.debug("No breakpoint possible for " + te);
                             return;
@@ -274,6 +389,69 @@ abstract public class DebuggerDialogBase extends JDialog implements ComponentLis
 
             item.setState(Debugger.isBreakpoint(te));
             popup.add(item);
+
+            JMenuItem condition = new JMenuItem("Breakpoint Condition...");
+            condition.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent actionEvent) {
+                    String cond = (String) JOptionPane.showInputDialog(tree, "Stop only when expression evaluates to 'true':",
+                            "Breakpoint Condition", JOptionPane.PLAIN_MESSAGE, null, null, Debugger.getBreakpointCondition(te));
+                    if (cond != null) {
+                        log.debug("Set breakpoint condition on: " + te);
+                        Debugger.setBreakpointCondition(te, cond.trim());
+                        tree.repaint();
+                    }
+                }
+            });
+            popup.add(condition);
+
+            JMenuItem logMessage = new JMenuItem("Log Message...");
+            logMessage.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent actionEvent) {
+                    String msg = (String) JOptionPane.showInputDialog(tree, "Write expression to Log tab instead of pausing (empty to pause):",
+                            "Logpoint", JOptionPane.PLAIN_MESSAGE, null, null, Debugger.getLogMessage(te));
+                    if (msg != null) {
+                        log.debug("Set log message on: " + te);
+                        Debugger.setLogMessage(te, msg);
+                        tree.repaint();
+                    }
+                }
+            });
+            popup.add(logMessage);
+
+            JMenuItem hitCount = new JMenuItem("Hit Count...");
+            hitCount.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent actionEvent) {
+                    JSpinner count = new JSpinner(new SpinnerNumberModel(Debugger.getHitCount(te), 0, Integer.MAX_VALUE, 1));
+                    JCheckBox every = new JCheckBox("Every Nth hit", Debugger.isHitEvery(te));
+                    JPanel panel = new JPanel(new BorderLayout());
+                    panel.add(new JLabel("Pause on hit number (0 for every hit): "), BorderLayout.WEST);
+                    panel.add(count, BorderLayout.CENTER);
+                    panel.add(every, BorderLayout.SOUTH);
+                    int res = JOptionPane.showConfirmDialog(tree, panel, "Hit Count", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+                    if (res == JOptionPane.OK_OPTION) {
+                        log.debug("Set hit count on: " + te);
+                        Debugger.setHitCount(te, (Integer) count.getValue(), every.isSelected());
+                        tree.repaint();
+                    }
+                }
+            });
+            popup.add(hitCount);
+
+            if (te instanceof Sampler) {
+                JMenuItem forget = new JMenuItem("Forget Replayed Responses");
+                forget.setEnabled(replay.isSelected());
+                forget.addActionListener(new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent actionEvent) {
+                        forgetReplayed(te);
+                    }
+                });
+                popup.addSeparator();
+                popup.add(forget);
+            }
             return popup;
         }
 
@@ -0,0 +1,144 @@
+package com.blazemeter.jmeter.debugger.gui;
+
+import com.blazemeter.jmeter.debugger.engine.ExpressionEvaluator;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeoutException;
+
+
+public class EvaluatePanel extends JPanel implements ActionListener {
+    private JTextField exprField = new JTextField();
+    private JButton doBtn = new JButton("Evaluate");
+    private LoggerPanelWrapping result = new LoggerPanelWrapping();
+    private JMeterContext context = JMeterContextService.getContext();
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+    private Object pending; // identifies latest evaluation, results of earlier ones are dropped
+
+    public EvaluatePanel() {
+        super(new BorderLayout());
+
+        JPanel container = new JPanel(new BorderLayout());
+        container.add(new JLabel("JMeter Expression: "), BorderLayout.WEST);
+        container.add(exprField, BorderLayout.CENTER);
+        container.add(doBtn, BorderLayout.EAST);
+
+        add(container, BorderLayout.NORTH);
+        add(new JScrollPane(result), BorderLayout.CENTER);
+
+        exprField.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent actionEvent) {
+                doBtn.doClick();
+            }
+        });
+
+        exprField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                evaluator.setExpression(exprField.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                evaluator.setExpression(exprField.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                evaluator.setExpression(exprField.getText());
+            }
+        });
+
+        doBtn.addActionListener(this);
+    }
+
+    public void refresh(JMeterContext ctx, boolean continuing) {
+        this.context = ctx;
+        doBtn.setEnabled(!continuing);
+        if (continuing) {
+            pending = null;
+            evaluator.cancel();
+            result.clear();
+        } else {
+            actionPerformed(new ActionEvent(this, 0, ""));
+        }
+    }
+
+    /**
+     * Called on debugged thread when it pauses
+     */
+    public void threadPaused() {
+        evaluator.threadPaused();
+    }
+
+    /**
+     * Called on debugged thread before it continues, evaluation in progress is dropped
+     */
+    public void threadResumed() {
+        evaluator.threadResumed();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        //exprField.setEditable(enabled);
+        result.setEnabled(enabled);
+        doBtn.setEnabled(enabled);
+        if (!enabled) {
+            pending = null;
+            evaluator.cancel();
+        }
+    }
+
+    /**
+     * Evaluation runs on worker, so slow or endless script function does not freeze debugger
+     */
+    @Override
+    public void actionPerformed(ActionEvent actionEvent) {
+        result.clear();
+        final Object token = new Object();
+        pending = token;
+        evaluator.setExpression(exprField.getText());
+        if (evaluator.getExpression().isEmpty()) {
+            evaluator.cancel();
+            return;
+        }
+
+        result.setText("Evaluating...");
+        evaluator.evaluate(context, new ExpressionEvaluator.Callback<String>() {
+            @Override
+            public void evaluated(final String res, final Throwable error) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (pending == token) {
+                            showResult(res, error);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void showResult(String res, Throwable error) {
+        if (error == null) {
+            result.setText(res);
+        } else if (error instanceof TimeoutException) {
+            result.setText(error.getMessage());
+        } else {
+            ByteArrayOutputStream text = new ByteArrayOutputStream(1024);
+            error.printStackTrace(new PrintStream(text));
+            result.setText(text.toString());
+            result.scrollToTop();
+        }
+    }
+}
@@ -6,35 +6,25 @@ import org.slf4j.LoggerFactory;
 import javax.swing.*;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableModel;
-import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.util.LinkedList;
 
 public class HighlightTable extends JTable {
     private static final Logger log = LoggerFactory.getLogger(HighlightTable.class);
 
 
+    /**
+     * No row sorter: models keep rows in order themselves, sorting view of every update is what made big tables crawl
+     */
     public HighlightTable(TableModel model) {
         super(model);
         setDefaultEditor(Object.class, null);
-        setSorter(model);
-    }
-
-    private void setSorter(TableModel model) {
-        TableRowSorter<TableModel> sorter = new TableRowSorter<>(model);
-        sorter.setSortsOnUpdates(true);
-        LinkedList<RowSorter.SortKey> sortKeys = new LinkedList<>();
-        sortKeys.add(new RowSorter.SortKey(0, SortOrder.ASCENDING));
-        sorter.setSortKeys(sortKeys);
-        sorter.sort();
-        setRowSorter(sorter);
     }
 
     @Override
     public Component prepareRenderer(TableCellRenderer renderer, int row, int column) {
         Component comp = super.prepareRenderer(renderer, row, column);
-        if (getModel() instanceof HighlightTableModel) {
-            HighlightTableModel model = (HighlightTableModel) getModel();
+        if (getModel() instanceof RowHighlighter) {
+            RowHighlighter model = (RowHighlighter) getModel();
             try {
                 Object valueAt = getValueAt(row, 0);
                 if (valueAt != null && model.isRowHighlighted(valueAt.toString(), getValueAt(row, 1))) {
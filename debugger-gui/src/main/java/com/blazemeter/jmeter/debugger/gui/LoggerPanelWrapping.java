@@ -3,8 +3,10 @@ package com.blazemeter.jmeter.debugger.gui;
 
 import org.apache.jmeter.gui.LoggerPanel;
 import org.apache.jmeter.gui.util.JSyntaxTextArea;
+import org.apache.jmeter.util.JMeterUtils;
 
 public class LoggerPanelWrapping extends LoggerPanel {
+    private static final int MAX_LENGTH = JMeterUtils.getPropDefault("jmeter.loggerpanel.maxlength", 80000);
     private JSyntaxTextArea area;
 
     public LoggerPanelWrapping() {
@@ -21,6 +23,16 @@ public class LoggerPanelWrapping extends LoggerPanel {
         }
     }
 
+    public void append(String txt) {
+        if (area != null) {
+            area.append(txt);
+            int excess = area.getDocument().getLength() - MAX_LENGTH;
+            if (MAX_LENGTH > 0 && excess > 0) {
+                area.replaceRange("", 0, excess);
+            }
+        }
+    }
+
     public void scrollToTop() {
         area.setCaretPosition(0);
     }
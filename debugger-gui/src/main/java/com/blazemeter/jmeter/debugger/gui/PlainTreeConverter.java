@@ -0,0 +1,39 @@
+package com.blazemeter.jmeter.debugger.gui;
+
+import org.apache.jmeter.gui.tree.JMeterTreeNode;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.HashTreeTraverser;
+import org.apache.jorphan.collections.ListedHashTree;
+
+import java.util.LinkedList;
+
+/**
+ * Turns GUI tree of JMeterTreeNode into tree of their TestElements, the form debugger engine works with.
+ * Elements are shared, not cloned, so breakpoints set on them stay visible to GUI.
+ */
+public class PlainTreeConverter implements HashTreeTraverser {
+    private final ListedHashTree newTree = new ListedHashTree();
+    private final LinkedList<HashTree> subTrees = new LinkedList<>();
+
+    public static HashTree convert(HashTree guiTree) {
+        PlainTreeConverter converter = new PlainTreeConverter();
+        guiTree.traverse(converter);
+        return converter.newTree;
+    }
+
+    @Override
+    public void addNode(Object node, HashTree subTree) {
+        Object te = node instanceof JMeterTreeNode ? ((JMeterTreeNode) node).getTestElement() : node;
+        HashTree parent = subTrees.isEmpty() ? newTree : subTrees.getLast();
+        subTrees.addLast(parent.add(te));
+    }
+
+    @Override
+    public void subtractNode() {
+        subTrees.removeLast();
+    }
+
+    @Override
+    public void processPath() {
+    }
+}
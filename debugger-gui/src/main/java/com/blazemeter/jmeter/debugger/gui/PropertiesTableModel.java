@@ -0,0 +1,61 @@
+package com.blazemeter.jmeter.debugger.gui;
+
+import org.apache.jmeter.util.JMeterUtils;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Properties rarely change between steps, so the table is re-diffed only when they look changed.
+ * Size is compared on every refresh. Content hash is a walk over all entries under the Hashtable lock,
+ * blocking test threads that set properties meanwhile, so it is compared at most once per
+ * {@code debugger.properties.check} milliseconds; value edited in place may show up that much later.
+ */
+public class PropertiesTableModel extends VariablesTableModel {
+    private final long checkInterval;
+    private Properties shown;
+    private int shownSize = -1;
+    private int shownHash;
+    private long checkedAt;
+
+    public PropertiesTableModel() {
+        this(JMeterUtils.getPropDefault("debugger.properties.check", 1000L));
+    }
+
+    public PropertiesTableModel(long checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * @return true if properties changed since previous refresh and table was updated
+     */
+    public boolean refresh(Properties props) {
+        int size = props.size();
+        if (props == shown && size == shownSize) {
+            long now = System.currentTimeMillis();
+            if (now - checkedAt < checkInterval) {
+                return false;
+            }
+            checkedAt = now;
+            int hash = props.hashCode();
+            if (hash == shownHash) {
+                return false;
+            }
+            shownHash = hash;
+        } else {
+            checkedAt = System.currentTimeMillis();
+            shownHash = props.hashCode();
+        }
+
+        shown = props;
+        shownSize = size;
+        update(getEntries(props));
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<Map.Entry<String, Object>> getEntries(Properties props) {
+        return (Set) props.entrySet(); // JMeter keeps only string keys there
+    }
+}
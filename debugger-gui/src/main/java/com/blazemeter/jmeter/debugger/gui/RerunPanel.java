@@ -0,0 +1,99 @@
+package com.blazemeter.jmeter.debugger.gui;
+
+import com.blazemeter.jmeter.debugger.engine.ExpressionEvaluator;
+import com.blazemeter.jmeter.debugger.engine.Rerun;
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.gui.util.PowerTableModel;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Map;
+
+/**
+ * Shows what re-run of paused post-processor or assertion produced: changed variables and assertion result
+ */
+public class RerunPanel extends JPanel {
+    private final JLabel status = new JLabel(" ");
+    private final PowerTableModel model = new PowerTableModel(new String[]{"Name", "Value"}, new Class[]{String.class, String.class});
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+    private Object pending; // identifies latest re-run, results of earlier ones are dropped
+
+    public RerunPanel() {
+        super(new BorderLayout());
+        add(status, BorderLayout.NORTH);
+        add(new JScrollPane(new JTable(model)), BorderLayout.CENTER);
+    }
+
+    /**
+     * Re-run happens on worker under evaluation timeout, so endless script in extractor does not freeze debugger
+     */
+    public void run(Rerun rerun) {
+        model.clearData();
+        model.fireTableDataChanged();
+        status.setText("Running " + rerun.getElement().getName() + "...");
+
+        final Object token = new Object();
+        pending = token;
+        evaluator.submit(rerun.getContext(), rerun, new ExpressionEvaluator.Callback<Rerun>() {
+            @Override
+            public void evaluated(final Rerun res, final Throwable error) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (pending == token) {
+                            pending = null;
+                            showResult(res, error);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    public void showError(String message) {
+        pending = null;
+        evaluator.cancel();
+        model.clearData();
+        model.fireTableDataChanged();
+        status.setText(message);
+    }
+
+    private void showResult(Rerun res, Throwable error) {
+        if (error != null) {
+            status.setText("Failed: " + (error.getMessage() == null ? error.toString() : error.getMessage()));
+            return;
+        }
+
+        Map<String, Object> changes = res.getChanges();
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            model.addRow(new String[]{change.getKey(), change.getValue() == null ? "<removed>" : String.valueOf(change.getValue())});
+        }
+        model.fireTableDataChanged();
+
+        StringBuilder text = new StringBuilder(res.getElement().getName()).append(": ");
+        AssertionResult assertion = res.getAssertionResult();
+        if (assertion != null) {
+            if (assertion.isError()) {
+                text.append("error, ");
+            } else if (assertion.isFailure()) {
+                text.append("failed, ");
+            } else {
+                text.append("passed, ");
+            }
+            if (assertion.getFailureMessage() != null) {
+                text.append(assertion.getFailureMessage()).append(", ");
+            }
+        }
+        text.append(changes.size()).append(" variable(s) changed");
+        status.setText(text.toString());
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        if (!enabled) {
+            pending = null;
+            evaluator.cancel();
+        }
+    }
+}
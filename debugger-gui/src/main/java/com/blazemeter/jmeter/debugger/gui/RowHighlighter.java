@@ -0,0 +1,5 @@
+package com.blazemeter.jmeter.debugger.gui;
+
+public interface RowHighlighter {
+    boolean isRowHighlighted(String curName, Object curValue);
+}
@@ -0,0 +1,90 @@
+package com.blazemeter.jmeter.debugger.gui;
+
+import com.blazemeter.jmeter.debugger.trace.TraceEvent;
+import com.blazemeter.jmeter.debugger.trace.TraceReader;
+import org.apache.jmeter.gui.util.PowerTableModel;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Turns trace recording on for next runs and shows recorded journal, last run's one or opened from file
+ */
+public class TracePanel extends JPanel {
+    private static final Logger log = LoggerFactory.getLogger(TracePanel.class);
+
+    private final JCheckBox record = new JCheckBox("Record to: ");
+    private final JTextField path = new JTextField();
+    private final JButton open = new JButton("Open...");
+    private final PowerTableModel model = new PowerTableModel(new String[]{"Time, ms", "Thread", "Type", "Element", "Sampler", "Changed Variables"},
+            new Class[]{String.class, String.class, String.class, String.class, String.class, String.class});
+
+    public TracePanel() {
+        super(new BorderLayout());
+
+        String defaultPath = JMeterUtils.getProperty("debugger.trace.file");
+        record.setSelected(defaultPath != null && !defaultPath.isEmpty());
+        path.setText(record.isSelected() ? defaultPath : new File(System.getProperty("java.io.tmpdir"), "jmeter-debugger.trace").getAbsolutePath());
+
+        JPanel container = new JPanel(new BorderLayout());
+        container.add(record, BorderLayout.WEST);
+        container.add(path, BorderLayout.CENTER);
+        container.add(open, BorderLayout.EAST);
+        add(container, BorderLayout.NORTH);
+        add(new JScrollPane(new JTable(model)), BorderLayout.CENTER);
+
+        open.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent actionEvent) {
+                JFileChooser chooser = new JFileChooser(new File(path.getText()).getParentFile());
+                if (chooser.showOpenDialog(TracePanel.this) == JFileChooser.APPROVE_OPTION) {
+                    load(chooser.getSelectedFile());
+                }
+            }
+        });
+    }
+
+    /**
+     * @return journal file for next run or null if recording is off
+     */
+    public File getRecordFile() {
+        return record.isSelected() && !path.getText().trim().isEmpty() ? new File(path.getText().trim()) : null;
+    }
+
+    public void load(File file) {
+        model.clearData();
+        try (TraceReader reader = new TraceReader(file)) {
+            TraceEvent event;
+            while ((event = reader.next()) != null) {
+                model.addRow(new String[]{String.format("%.3f", event.getTime() / 1000000.0), event.getThread(), event.getType(),
+                        event.getElement(), event.getSampler() == null ? "" : event.getSampler(), formatChanges(event.getChanges())});
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read trace journal " + file, e);
+        }
+        model.fireTableDataChanged();
+    }
+
+    private static String formatChanges(Map<String, String> changes) {
+        StringBuilder res = new StringBuilder();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            if (res.length() > 0) {
+                res.append(", ");
+            }
+            if (change.getValue() == null) {
+                res.append('-').append(change.getKey());
+            } else {
+                res.append(change.getKey()).append('=').append(change.getValue());
+            }
+        }
+        return res.toString();
+    }
+}
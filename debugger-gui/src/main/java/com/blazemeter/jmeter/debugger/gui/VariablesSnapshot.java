@@ -0,0 +1,175 @@
+package com.blazemeter.jmeter.debugger.gui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable name/value arrays sorted by name, each change of variables produces new snapshot
+ * by merging only the delta, so nothing is sorted or stringified again.
+ */
+class VariablesSnapshot {
+    static final Comparator<String> ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String o1, String o2) {
+            int res = String.CASE_INSENSITIVE_ORDER.compare(o1, o2);
+            return res == 0 ? o1.compareTo(o2) : res;
+        }
+    };
+
+    static final VariablesSnapshot EMPTY = new VariablesSnapshot(new String[0], new Object[0]);
+
+    private final String[] names;
+    private final Object[] values;
+    private String index; // lowercase names separated by line breaks, built on first substring search
+    private int[] offsets;
+
+    private VariablesSnapshot(String[] names, Object[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int pos) {
+        return names[pos];
+    }
+
+    public Object getValue(int pos) {
+        return values[pos];
+    }
+
+    /**
+     * @return position of the name, or negative insertion point as Arrays.binarySearch does
+     */
+    public int indexOf(String name) {
+        return Arrays.binarySearch(names, name, ORDER);
+    }
+
+    /**
+     * @param changes new values by name, null value for removed ones
+     * @return snapshot with changes applied, this if there were none
+     */
+    public VariablesSnapshot apply(Map<String, Object> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+
+        Object[] newValues = values.clone();
+        List<String> added = new ArrayList<>();
+        int removed = 0;
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            int pos = indexOf(change.getKey());
+            if (pos >= 0) {
+                newValues[pos] = change.getValue();
+                if (change.getValue() == null) {
+                    removed++;
+                }
+            } else if (change.getValue() != null) {
+                added.add(change.getKey());
+            }
+        }
+
+        if (added.isEmpty() && removed == 0) {
+            return new VariablesSnapshot(names, newValues);
+        }
+
+        Collections.sort(added, ORDER);
+        int size = names.length + added.size() - removed;
+        String[] mergedNames = new String[size];
+        Object[] mergedValues = new Object[size];
+        int out = 0;
+        int in = 0;
+        for (String name : added) {
+            while (in < names.length && ORDER.compare(names[in], name) < 0) {
+                out = copy(in++, newValues, mergedNames, mergedValues, out);
+            }
+            mergedNames[out] = name;
+            mergedValues[out++] = changes.get(name);
+        }
+        while (in < names.length) {
+            out = copy(in++, newValues, mergedNames, mergedValues, out);
+        }
+        return new VariablesSnapshot(mergedNames, mergedValues);
+    }
+
+    private int copy(int in, Object[] newValues, String[] mergedNames, Object[] mergedValues, int out) {
+        if (newValues[in] != null) {
+            mergedNames[out] = names[in];
+            mergedValues[out++] = newValues[in];
+        }
+        return out;
+    }
+
+    /**
+     * Binary search over sorted names, then walking the matching range
+     *
+     * @return ascending positions of names starting with prefix, ignoring case
+     */
+    public int[] findByPrefix(String prefix) {
+        int pos = indexOf(prefix);
+        if (pos < 0) {
+            pos = -pos - 1;
+        }
+        while (pos > 0 && names[pos - 1].regionMatches(true, 0, prefix, 0, prefix.length())) {
+            pos--; // same letters in different case may sort before the prefix itself
+        }
+
+        int end = pos;
+        while (end < names.length && names[end].regionMatches(true, 0, prefix, 0, prefix.length())) {
+            end++;
+        }
+
+        int[] res = new int[end - pos];
+        for (int n = 0; n < res.length; n++) {
+            res[n] = pos + n;
+        }
+        return res;
+    }
+
+    /**
+     * Scans single lowercase string of all names, so search is one indexOf per match rather than per name
+     *
+     * @return ascending positions of names containing text, ignoring case
+     */
+    public int[] findBySubstring(String text) {
+        buildIndex();
+        String needle = text.toLowerCase();
+        int[] res = new int[16];
+        int count = 0;
+        int from = 0;
+        int found;
+        while ((found = index.indexOf(needle, from)) >= 0) {
+            int pos = Arrays.binarySearch(offsets, found);
+            if (pos < 0) {
+                pos = -pos - 2; // match inside the name starting before it
+            }
+            if (count == res.length) {
+                res = Arrays.copyOf(res, count * 2);
+            }
+            res[count++] = pos;
+            from = pos + 1 < offsets.length ? offsets[pos + 1] : index.length();
+        }
+        return Arrays.copyOf(res, count);
+    }
+
+    private synchronized void buildIndex() {
+        if (index != null) {
+            return;
+        }
+
+        StringBuilder text = new StringBuilder(names.length * 16);
+        int[] starts = new int[names.length];
+        for (int n = 0; n < names.length; n++) {
+            starts[n] = text.length();
+            text.append(names[n].toLowerCase()).append('\n');
+        }
+        offsets = starts;
+        index = text.toString();
+    }
+}
@@ -0,0 +1,181 @@
+package com.blazemeter.jmeter.debugger.gui;
+
+import com.blazemeter.jmeter.debugger.engine.VariablesTracker;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Name/value table over immutable snapshot sorted by name. Only what changed since previous update is applied,
+ * with row-level events unless filter is on or most of the rows changed, and cell strings are made only for rows the table actually paints, so it stays usable with tens of thousands of rows.
+ * Filter starting with ^ matches name prefix, otherwise any part of the name.
+ */
+public class VariablesTableModel extends AbstractTableModel implements RowHighlighter {
+    public static final int MAX_DISPLAY_LENGTH = 1024;
+    private static final int BULK_CHANGE_DIVISOR = 4;
+
+    private final VariablesTracker tracker = new VariablesTracker();
+    private VariablesSnapshot snapshot = VariablesSnapshot.EMPTY;
+    private String filter = "";
+    private int[] visible; // snapshot positions passing filter, null when there is no filter
+    private Set<String> highlighted = Collections.emptySet();
+
+    /**
+     * Rows changed by this update get highlighted, first fill of empty table is not counted as change
+     */
+    public void update(Set<Map.Entry<String, Object>> vars) {
+        Map<String, Object> changes = tracker.update(vars);
+        Set<String> previous = highlighted;
+        if (changes.isEmpty()) {
+            highlighted = Collections.emptySet();
+            fireRowsUpdated(previous); // drop highlight
+            return;
+        }
+
+        boolean initial = snapshot.size() == 0;
+        VariablesSnapshot prev = snapshot;
+        snapshot = prev.apply(changes);
+        boolean structural = snapshot.size() != prev.size() || changes.containsValue(null);
+        highlighted = new HashSet<>();
+        if (!initial) {
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                if (change.getValue() != null) {
+                    highlighted.add(change.getKey());
+                }
+            }
+        }
+
+        boolean bulk = changes.size() + previous.size() > 16
+                && changes.size() + previous.size() > getRowCount() / BULK_CHANGE_DIVISOR;
+        if (bulk || (structural && visible != null)) {
+            applyFilter();
+            fireTableDataChanged();
+        } else {
+            if (structural) {
+                fireRowsMoved(prev, changes);
+            }
+            fireRowsUpdated(previous);
+            fireRowsUpdated(highlighted);
+        }
+    }
+
+    /**
+     * Deletions go from the bottom, in positions of previous snapshot, then insertions from the top
+     * in positions of the new one, so each event is valid for the table as left by the ones before it
+     */
+    private void fireRowsMoved(VariablesSnapshot prev, Map<String, Object> changes) {
+        List<Integer> deleted = new ArrayList<>();
+        List<Integer> inserted = new ArrayList<>();
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            int pos = prev.indexOf(change.getKey());
+            if (change.getValue() == null) {
+                if (pos >= 0) {
+                    deleted.add(pos);
+                }
+            } else if (pos < 0) {
+                inserted.add(snapshot.indexOf(change.getKey()));
+            }
+        }
+
+        Collections.sort(deleted, Collections.reverseOrder());
+        for (int row : deleted) {
+            fireTableRowsDeleted(row, row);
+        }
+        Collections.sort(inserted);
+        for (int row : inserted) {
+            fireTableRowsInserted(row, row);
+        }
+    }
+
+    private void fireRowsUpdated(Set<String> names) {
+        for (String name : names) {
+            int row = getRow(name);
+            if (row >= 0) {
+                fireTableRowsUpdated(row, row);
+            }
+        }
+    }
+
+    /**
+     * @return table row showing the name, -1 if not shown
+     */
+    public int getRow(String name) {
+        int pos = snapshot.indexOf(name);
+        if (pos < 0 || visible == null) {
+            return pos < 0 ? -1 : pos;
+        }
+        int row = Arrays.binarySearch(visible, pos);
+        return row < 0 ? -1 : row;
+    }
+
+    public String getFilter() {
+        return filter;
+    }
+
+    public void setFilter(String filter) {
+        filter = filter == null ? "" : filter;
+        if (!filter.equals(this.filter)) {
+            this.filter = filter;
+            applyFilter();
+            fireTableDataChanged();
+        }
+    }
+
+    private void applyFilter() {
+        if (filter.isEmpty() || filter.equals("^")) {
+            visible = null;
+        } else if (filter.startsWith("^")) {
+            visible = snapshot.findByPrefix(filter.substring(1));
+        } else {
+            visible = snapshot.findBySubstring(filter);
+        }
+    }
+
+    private int getPosition(int row) {
+        return visible == null ? row : visible[row];
+    }
+
+    @Override
+    public boolean isRowHighlighted(String curName, Object curValue) {
+        return highlighted.contains(curName);
+    }
+
+    @Override
+    public int getRowCount() {
+        return visible == null ? snapshot.size() : visible.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return 2;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column == 0 ? "Name" : "Value";
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int pos = getPosition(row);
+        return column == 0 ? snapshot.getName(pos) : truncate(String.valueOf(snapshot.getValue(pos)));
+    }
+
+    private static String truncate(String value) {
+        if (value.length() <= MAX_DISPLAY_LENGTH) {
+            return value;
+        }
+        return value.substring(0, MAX_DISPLAY_LENGTH) + "... (" + value.length() + " chars)";
+    }
+}
@@ -0,0 +1,211 @@
+package com.blazemeter.jmeter.debugger.gui;
+
+import com.blazemeter.jmeter.debugger.engine.ExpressionEvaluator;
+import com.blazemeter.jmeter.debugger.engine.StatusSnapshot;
+import com.blazemeter.jmeter.debugger.engine.Watch;
+import com.blazemeter.jmeter.debugger.engine.WatchList;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Watch expressions re-evaluated at each pause, only those whose variables changed
+ */
+public class WatchPanel extends JPanel {
+    private final JTextField exprField = new JTextField();
+    private final JButton addBtn = new JButton("Add");
+    private final JButton removeBtn = new JButton("Remove");
+    private final WatchList watches = new WatchList();
+    private final WatchTableModel model = new WatchTableModel();
+    private final JTable table = new HighlightTable(model);
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+    private StatusSnapshot snapshot;
+    private Object pending; // identifies latest batch, results of earlier ones are dropped
+
+    public WatchPanel() {
+        super(new BorderLayout());
+
+        JPanel buttons = new JPanel(new GridLayout(1, 2));
+        buttons.add(addBtn);
+        buttons.add(removeBtn);
+
+        JPanel container = new JPanel(new BorderLayout());
+        container.add(new JLabel("Watch Expression: "), BorderLayout.WEST);
+        container.add(exprField, BorderLayout.CENTER);
+        container.add(buttons, BorderLayout.EAST);
+
+        add(container, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        ActionListener adder = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                addWatch();
+            }
+        };
+        exprField.addActionListener(adder);
+        addBtn.addActionListener(adder);
+        removeBtn.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                removeSelected();
+            }
+        });
+    }
+
+    private void addWatch() {
+        String text = exprField.getText();
+        if (text.isEmpty()) {
+            return;
+        }
+
+        watches.add(text);
+        exprField.setText("");
+        model.fireTableRowsInserted(watches.size() - 1, watches.size() - 1);
+        evaluate();
+    }
+
+    private void removeSelected() {
+        int[] rows = table.getSelectedRows();
+        for (int n = rows.length - 1; n >= 0; n--) {
+            watches.remove(rows[n]);
+        }
+        model.fireTableDataChanged();
+    }
+
+    /**
+     * Called on each pause of debugged thread
+     */
+    public void refresh(StatusSnapshot snapshot) {
+        this.snapshot = snapshot;
+        evaluate();
+    }
+
+    /**
+     * Called on debugged thread when it pauses
+     */
+    public void threadPaused() {
+        evaluator.threadPaused();
+    }
+
+    /**
+     * Called on debugged thread before it continues, evaluation in progress is dropped
+     */
+    public void threadResumed() {
+        evaluator.threadResumed();
+    }
+
+    private void evaluate() {
+        if (snapshot == null || snapshot.isContinuing() || !isEnabled()) {
+            return;
+        }
+
+        WatchList.Batch batch = watches.prepare(snapshot.getContext(), snapshot.getVariables());
+        if (batch == null) {
+            pending = null;
+            model.setHighlighted(Collections.<Watch>emptySet());
+            return;
+        }
+
+        final Object token = new Object();
+        pending = token;
+        evaluator.submit(batch.getContext(), batch, new BatchCallback(batch, token));
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        exprField.setEnabled(enabled);
+        addBtn.setEnabled(enabled);
+        removeBtn.setEnabled(enabled);
+        if (!enabled) {
+            pending = null;
+            snapshot = null; // context of stopped or past step, do not evaluate new watches against it
+            evaluator.cancel();
+        }
+    }
+
+    private class BatchCallback implements ExpressionEvaluator.Callback<List<String>> {
+        private final WatchList.Batch batch;
+        private final Object token;
+
+        private BatchCallback(WatchList.Batch batch, Object token) {
+            this.batch = batch;
+            this.token = token;
+        }
+
+        @Override
+        public void evaluated(final List<String> results, final Throwable error) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    if (pending == token) {
+                        pending = null;
+                        model.setHighlighted(batch.apply(error == null ? results : getErrors(error)));
+                    }
+                }
+            });
+        }
+
+        private List<String> getErrors(Throwable error) {
+            String text = error.getMessage() == null ? error.toString() : error.getMessage();
+            return new ArrayList<>(Collections.nCopies(batch.getWatches().size(), text));
+        }
+    }
+
+    private class WatchTableModel extends AbstractTableModel implements RowHighlighter {
+        private Set<Watch> highlighted = Collections.newSetFromMap(new IdentityHashMap<Watch, Boolean>());
+
+        private void setHighlighted(Set<Watch> changed) {
+            boolean repaint = !highlighted.isEmpty() || !changed.isEmpty();
+            highlighted = changed;
+            if (repaint && getRowCount() > 0) {
+                fireTableRowsUpdated(0, getRowCount() - 1);
+            }
+        }
+
+        @Override
+        public boolean isRowHighlighted(String curName, Object curValue) {
+            for (Watch watch : highlighted) {
+                if (watch.getExpression().equals(curName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int getRowCount() {
+            return watches.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 2;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return column == 0 ? "Expression" : "Value";
+        }
+
+        @Override
+        public Class<?> getColumnClass(int columnIndex) {
+            return String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Watch watch = watches.get(row);
+            return column == 0 ? watch.getExpression() : watch.getResult();
+        }
+    }
+}
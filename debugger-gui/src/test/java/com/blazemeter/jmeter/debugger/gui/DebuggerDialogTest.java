@@ -1,7 +1,7 @@
 package com.blazemeter.jmeter.debugger.gui;
 
-import com.blazemeter.jmeter.debugger.TestProvider;
 import com.blazemeter.jmeter.debugger.elements.SamplerDebug;
+import com.blazemeter.jmeter.debugger.engine.StatusSnapshot;
 import kg.apc.emulators.TestJMeterUtils;
 import org.apache.jmeter.exceptions.IllegalUserActionException;
 import org.apache.jmeter.functions.TimeFunction;
@@ -10,11 +10,14 @@ import org.apache.jmeter.gui.MainFrame;
 import org.apache.jmeter.gui.action.ActionRouter;
 import org.apache.jmeter.gui.tree.JMeterTreeListener;
 import org.apache.jmeter.gui.tree.JMeterTreeModel;
+import org.apache.jmeter.gui.tree.JMeterTreeNode;
 import org.apache.jmeter.gui.util.JMeterToolBar;
+import org.apache.jmeter.save.SaveService;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.visualizers.RenderAsHTML;
 import org.apache.jorphan.collections.HashTree;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -25,8 +28,10 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
 
 public class DebuggerDialogTest {
@@ -53,18 +58,23 @@ public class DebuggerDialogTest {
                 log.debug("Action " + actionEvent);
             }
         });
-        TestProvider prov = new TestProvider();
-        JMeterTreeModel mdl = prov.getTreeModel();
+        JMeterTreeModel mdl = loadModel("sample1.jmx");
         a.setModel(mdl);
 
         GuiPackage.initInstance(a, mdl);
-        DebuggerDialog obj = new DebuggerDialogMock(prov.getTreeModel());
+        DebuggerDialog obj = new DebuggerDialogMock(mdl);
 
         obj.componentShown(null);
         obj.started();
-        obj.statusRefresh(JMeterContextService.getContext());
+        obj.statusRefresh(new StatusSnapshot("test", JMeterContextService.getContext(), null, null, null, false, Collections.<String, Object>emptyMap()));
         obj.frozenAt(new SamplerDebug());
-        obj.continuing();
+        obj.continuing(); // called off EDT like debugged thread does, controls change once EDT gets to it
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        Assert.assertEquals("Pause", obj.pauseContinue.getText());
         obj.stopped();
         obj.componentHidden(null);
     }
@@ -72,8 +82,7 @@ public class DebuggerDialogTest {
     @Test
     public void displayGUI() throws InterruptedException, IOException, IllegalUserActionException {
         if (!GraphicsEnvironment.getLocalGraphicsEnvironment().isHeadlessInstance()) {
-            TestProvider prov = new TestProvider("/com/blazemeter/jmeter/debugger/vars.jmx", "vars.jmx");
-            JMeterTreeModel mdl = prov.getTreeModel();
+            JMeterTreeModel mdl = loadModel("vars.jmx");
             JMeterTreeListener a = new JMeterTreeListener();
             a.setActionHandler(new ActionListener() {
                 @Override
@@ -111,6 +120,16 @@ public class DebuggerDialogTest {
         }
     }
 
+    /**
+     * @param name JMX shared by debugger-core tests
+     */
+    private static JMeterTreeModel loadModel(String name) throws IOException, IllegalUserActionException {
+        File file = new File(DebuggerDialogTest.class.getResource("/com/blazemeter/jmeter/debugger/" + name).getFile());
+        JMeterTreeModel mdl = new JMeterTreeModel();
+        mdl.addSubTree(SaveService.loadTree(new File(TestJMeterUtils.fixWinPath(file.getAbsolutePath()))), (JMeterTreeNode) mdl.getRoot());
+        return mdl;
+    }
+
     private class DebuggerDialogMock extends DebuggerDialog {
         private final JMeterTreeModel mdl;
 
@@ -120,7 +139,7 @@ public class DebuggerDialogTest {
 
         @Override
         public HashTree getTestTree() {
-            return mdl.getTestPlan();
+            return PlainTreeConverter.convert(mdl.getTestPlan());
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.blazemeter.jmeter.debugger.gui;
+
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PropertiesTableModelTest {
+    @Test
+    public void refreshesOnlyOnChange() throws Exception {
+        PropertiesTableModel model = new PropertiesTableModel(0);
+        Properties props = new Properties();
+        for (int n = 0; n < 1000; n++) {
+            props.setProperty("prop" + n, "value" + n);
+        }
+
+        assertTrue(model.refresh(props));
+        assertEquals(1000, model.getRowCount());
+        assertFalse(model.refresh(props));
+
+        props.setProperty("prop5", "changed");
+        assertTrue(model.refresh(props));
+        assertTrue(model.isRowHighlighted("prop5", null));
+        assertFalse(model.refresh(props));
+
+        props.remove("prop6");
+        assertTrue(model.refresh(props));
+        assertEquals(999, model.getRowCount());
+
+        Properties other = new Properties();
+        other.putAll(props);
+        assertTrue(model.refresh(other));
+        assertFalse(model.isRowHighlighted("prop5", null));
+    }
+
+    @Test
+    public void throttlesContentCheck() throws Exception {
+        PropertiesTableModel model = new PropertiesTableModel(Long.MAX_VALUE);
+        Properties props = new Properties();
+        props.setProperty("a", "1");
+        assertTrue(model.refresh(props));
+
+        props.setProperty("a", "2"); // same size, waits for the next content check
+        assertFalse(model.refresh(props));
+
+        props.setProperty("b", "1");
+        assertTrue(model.refresh(props));
+        assertEquals(2, model.getRowCount());
+        assertTrue(model.isRowHighlighted("a", null));
+    }
+}
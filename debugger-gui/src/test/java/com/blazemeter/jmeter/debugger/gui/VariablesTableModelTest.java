@@ -0,0 +1,186 @@
+package com.blazemeter.jmeter.debugger.gui;
+
+import org.junit.Test;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VariablesTableModelTest {
+    @Test
+    public void appliesOnlyChanges() throws Exception {
+        VariablesTableModel model = new VariablesTableModel();
+        final List<TableModelEvent> events = new ArrayList<>();
+        model.addTableModelListener(new TableModelListener() {
+            @Override
+            public void tableChanged(TableModelEvent e) {
+                events.add(e);
+            }
+        });
+
+        Map<String, Object> vars = new HashMap<>();
+        for (int n = 0; n < 100; n++) {
+            vars.put("var" + n, "value" + n);
+        }
+        model.update(vars.entrySet());
+        assertEquals(100, model.getRowCount());
+        assertFalse(model.isRowHighlighted("var1", null));
+        assertSorted(model);
+
+        events.clear();
+        vars.put("var1", "changed");
+        model.update(vars.entrySet());
+        assertEquals(1, events.size());
+        assertEquals(TableModelEvent.UPDATE, events.get(0).getType());
+        assertEquals(events.get(0).getFirstRow(), events.get(0).getLastRow());
+        assertEquals(model.getRow("var1"), events.get(0).getFirstRow());
+        assertEquals("changed", model.getValueAt(events.get(0).getFirstRow(), 1));
+        assertTrue(model.isRowHighlighted("var1", null));
+
+        events.clear();
+        vars.put("added", 1);
+        model.update(vars.entrySet());
+        assertEquals(101, model.getRowCount());
+        assertEquals(0, model.getRow("added"));
+        assertEquals(TableModelEvent.INSERT, events.get(0).getType());
+        assertEquals(0, events.get(0).getFirstRow());
+        assertEquals(0, events.get(0).getLastRow());
+        assertNoDataChanged(events);
+        assertEquals("1", model.getValueAt(0, 1));
+        assertFalse(model.isRowHighlighted("var1", null));
+        assertTrue(model.isRowHighlighted("added", null));
+        assertSorted(model);
+
+        events.clear();
+        int removedRow = model.getRow("var5");
+        vars.remove("var5");
+        model.update(vars.entrySet());
+        assertEquals(100, model.getRowCount());
+        assertEquals(-1, model.getRow("var5"));
+        assertEquals(TableModelEvent.DELETE, events.get(0).getType());
+        assertEquals(removedRow, events.get(0).getFirstRow());
+        assertNoDataChanged(events);
+
+        events.clear();
+        List<Object> mirror = getNames(model);
+        vars.remove("var7");
+        vars.remove("var70");
+        vars.put("var6a", "x");
+        vars.put("a", "y");
+        model.update(vars.entrySet());
+        assertEquals(100, model.getRowCount());
+        assertNoDataChanged(events);
+        for (TableModelEvent event : events) { // replaying events in order must give the table as it is now
+            if (event.getType() == TableModelEvent.DELETE) {
+                mirror.remove(event.getFirstRow());
+            } else if (event.getType() == TableModelEvent.INSERT) {
+                mirror.add(event.getFirstRow(), model.getValueAt(event.getFirstRow(), 0));
+            }
+        }
+        assertEquals(getNames(model), mirror);
+
+        events.clear();
+        model.setFilter("var");
+        vars.put("var_new", "z");
+        model.update(vars.entrySet());
+        assertEquals(Integer.MAX_VALUE, events.get(events.size() - 1).getLastRow()); // data changed with filter on
+        model.setFilter("");
+        for (int row = 0; row < model.getRowCount(); row++) {
+            Object name = model.getValueAt(row, 0);
+            assertEquals(String.valueOf(vars.get(name)), model.getValueAt(row, 1));
+        }
+        assertSorted(model);
+
+        model.update(vars.entrySet());
+        events.clear();
+        model.update(vars.entrySet());
+        assertTrue(events.isEmpty()); // nothing changed, nothing to repaint
+    }
+
+    @Test
+    public void filters() throws Exception {
+        VariablesTableModel model = new VariablesTableModel();
+        Map<String, Object> vars = new HashMap<>();
+        for (int n = 1; n <= 50000; n++) {
+            vars.put("match_" + n, n);
+        }
+        vars.put("MATCH_nr", "50000");
+        vars.put("other", "x");
+        model.update(vars.entrySet());
+        assertEquals(50002, model.getRowCount());
+
+        model.setFilter("^match_1");
+        assertEquals(11111, model.getRowCount());
+        assertEquals("match_1", model.getValueAt(0, 0));
+
+        model.setFilter("^MATCH_N");
+        assertEquals(1, model.getRowCount());
+        assertEquals("MATCH_nr", model.getValueAt(0, 0));
+
+        model.setFilter("h_4999");
+        assertEquals(11, model.getRowCount());
+        assertSorted(model);
+
+        model.setFilter("ther");
+        assertEquals(1, model.getRowCount());
+        vars.put("other", "y");
+        model.update(vars.entrySet());
+        assertEquals("y", model.getValueAt(0, 1));
+        assertEquals(0, model.getRow("other"));
+        assertEquals(-1, model.getRow("match_1"));
+
+        vars.put("another", "z");
+        model.update(vars.entrySet());
+        assertEquals(2, model.getRowCount());
+        assertEquals("another", model.getValueAt(0, 0));
+
+        model.setFilter("absent");
+        assertEquals(0, model.getRowCount());
+        model.setFilter("");
+        assertEquals(50003, model.getRowCount());
+    }
+
+    @Test
+    public void truncatesLongValues() throws Exception {
+        VariablesTableModel model = new VariablesTableModel();
+        Map<String, Object> vars = new HashMap<>();
+        StringBuilder value = new StringBuilder();
+        for (int n = 0; n < VariablesTableModel.MAX_DISPLAY_LENGTH * 2; n++) {
+            value.append('a');
+        }
+        vars.put("long", value.toString());
+        model.update(vars.entrySet());
+        String shown = (String) model.getValueAt(0, 1);
+        assertTrue(shown.length() < value.length());
+        assertTrue(shown.endsWith("(" + value.length() + " chars)"));
+    }
+
+    private static void assertNoDataChanged(List<TableModelEvent> events) {
+        for (TableModelEvent event : events) {
+            assertFalse(event.getLastRow() == Integer.MAX_VALUE);
+        }
+    }
+
+    private static List<Object> getNames(VariablesTableModel model) {
+        List<Object> names = new ArrayList<>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            names.add(model.getValueAt(row, 0));
+        }
+        return names;
+    }
+
+    private static void assertSorted(VariablesTableModel model) {
+        for (int row = 1; row < model.getRowCount(); row++) {
+            String prev = (String) model.getValueAt(row - 1, 0);
+            String cur = (String) model.getValueAt(row, 0);
+            assertTrue(prev + " before " + cur, String.CASE_INSENSITIVE_ORDER.compare(prev, cur) <= 0);
+        }
+    }
+}